@@ -0,0 +1,7 @@
+-- Appointment numbers are allocated from this sequence before the appointment is inserted.
+-- Each instance reserves 50 numbers per nextval (AppointmentNumberAllocator.ALLOCATION_SIZE),
+-- so INCREMENT BY must stay in sync with it.
+CREATE SEQUENCE IF NOT EXISTS appointment_number_seq INCREMENT BY 50 MINVALUE 50 START WITH 50;
+
+-- Start above every id already used in an appointment number, so new numbers never repeat old ones
+SELECT setval('appointment_number_seq', GREATEST(50, (SELECT COALESCE(MAX(id), 0) FROM appointments) + 50));
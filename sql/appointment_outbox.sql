@@ -0,0 +1,25 @@
+-- Transactional outbox for appointment stream events (created by ddl-auto as well)
+CREATE TABLE IF NOT EXISTS appointment_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    stream_key VARCHAR(100) NOT NULL,
+    appointment_id BIGINT,
+    fields TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    delivered_at TIMESTAMP,
+    dead_lettered_at TIMESTAMP,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    last_error VARCHAR(500)
+);
+
+-- Tables created before rows could be dead-lettered
+ALTER TABLE appointment_outbox ADD COLUMN IF NOT EXISTS dead_lettered_at TIMESTAMP;
+
+-- The relay, the backlog gauge and the lag gauge only ever look at pending rows
+DROP INDEX IF EXISTS idx_appointment_outbox_undelivered;
+CREATE INDEX IF NOT EXISTS idx_appointment_outbox_pending
+    ON appointment_outbox(id)
+    WHERE delivered_at IS NULL AND dead_lettered_at IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_appointment_outbox_delivered_at
+    ON appointment_outbox(delivered_at)
+    WHERE delivered_at IS NOT NULL;
@@ -0,0 +1,29 @@
+-- Database-level guarantee that a barber is never double-booked: no two non-cancelled
+-- appointments of the same employee may have overlapping [appointment_date, estimated_end_time).
+-- The application already serializes bookings per barber with pg_advisory_xact_lock; this
+-- constraint also covers writes from the web backend. Violations surface as SQLState 23P01,
+-- which the API maps to 409 "slot taken".
+--
+-- Existing overlapping rows make the ALTER fail; find them first with the query at the bottom.
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+-- Bookings now always store an end time; give older rows without one their service's duration,
+-- so the constraint covers them too
+UPDATE appointments a
+SET estimated_end_time = a.appointment_date + s.duration_minutes * INTERVAL '1 minute'
+FROM services s
+WHERE s.id = a.service_id AND a.estimated_end_time IS NULL;
+
+ALTER TABLE appointments
+    ADD CONSTRAINT appointments_employee_no_overlap
+    EXCLUDE USING gist (
+        employee_id WITH =,
+        tsrange(appointment_date, estimated_end_time, '[)') WITH &&
+    )
+    WHERE (status <> 'CANCELLED' AND estimated_end_time IS NOT NULL);
+
+-- SELECT a.id, b.id, a.employee_id
+-- FROM appointments a
+-- JOIN appointments b ON a.employee_id = b.employee_id AND a.id < b.id
+-- WHERE a.status <> 'CANCELLED' AND b.status <> 'CANCELLED'
+--   AND a.appointment_date < b.estimated_end_time AND b.appointment_date < a.estimated_end_time;
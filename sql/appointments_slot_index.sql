@@ -0,0 +1,5 @@
+-- Availability and conflict lookups read one employee's appointments in a timestamp range
+-- and never look at cancelled rows, so a partial composite index keeps them to an index range scan
+CREATE INDEX IF NOT EXISTS idx_appointments_employee_date_active
+    ON appointments(employee_id, appointment_date)
+    WHERE status <> 'CANCELLED';
@@ -0,0 +1,23 @@
+-- Version columns for optimistic locking of appointments and customers (ddl-auto adds the same columns)
+ALTER TABLE appointments ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE customers ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- The web backend updates the same rows without knowing about the version column.
+-- Bump it for any UPDATE that did not, so those writes are detected by the mobile API as well.
+-- Hibernate increments the version itself, in which case the trigger leaves it alone.
+CREATE OR REPLACE FUNCTION bump_row_version() RETURNS trigger AS $$
+BEGIN
+    IF NEW.version IS NOT DISTINCT FROM OLD.version THEN
+        NEW.version := OLD.version + 1;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS appointments_bump_version ON appointments;
+CREATE TRIGGER appointments_bump_version BEFORE UPDATE ON appointments
+    FOR EACH ROW EXECUTE FUNCTION bump_row_version();
+
+DROP TRIGGER IF EXISTS customers_bump_version ON customers;
+CREATE TRIGGER customers_bump_version BEFORE UPDATE ON customers
+    FOR EACH ROW EXECUTE FUNCTION bump_row_version();
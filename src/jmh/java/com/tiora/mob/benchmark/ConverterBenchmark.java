@@ -0,0 +1,82 @@
+package com.tiora.mob.benchmark;
+
+import com.tiora.mob.config.WeeklyScheduleConverter;
+import com.tiora.mob.entity.WeeklySchedule;
+import com.tiora.mob.util.MapListJsonConverter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON column converters, which run for every employee and service row Hibernate loads or flushes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConverterBenchmark {
+
+    // Size of a specializations-style list
+    @Param({"1", "8", "32"})
+    public int entries;
+
+    private final MapListJsonConverter mapListConverter = new MapListJsonConverter();
+    private final WeeklyScheduleConverter weeklyScheduleConverter = new WeeklyScheduleConverter();
+
+    private List<Map<String, Object>> mapList;
+    private String mapListJson;
+    private WeeklySchedule weeklySchedule;
+    private String weeklyScheduleJson;
+
+    @Setup
+    public void setUp() {
+        mapList = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", (long) i + 1);
+            entry.put("name", "Service " + i);
+            entry.put("duration", 30 + i);
+            entry.put("price", 1500.0 + i);
+            mapList.add(entry);
+        }
+        mapListJson = mapListConverter.convertToDatabaseColumn(mapList);
+        weeklySchedule = new WeeklySchedule();
+        weeklyScheduleJson = weeklyScheduleConverter.convertToDatabaseColumn(weeklySchedule);
+    }
+
+    @Benchmark
+    public String mapListToColumn() {
+        return mapListConverter.convertToDatabaseColumn(mapList);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> mapListFromColumn() {
+        return mapListConverter.convertToEntityAttribute(mapListJson);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> mapListRoundTrip() {
+        return mapListConverter.convertToEntityAttribute(mapListConverter.convertToDatabaseColumn(mapList));
+    }
+
+    @Benchmark
+    public String weeklyScheduleToColumn() {
+        return weeklyScheduleConverter.convertToDatabaseColumn(weeklySchedule);
+    }
+
+    @Benchmark
+    public WeeklySchedule weeklyScheduleFromColumn() {
+        return weeklyScheduleConverter.convertToEntityAttribute(weeklyScheduleJson);
+    }
+
+    @Benchmark
+    public WeeklySchedule weeklyScheduleRoundTrip() {
+        return weeklyScheduleConverter.convertToEntityAttribute(weeklyScheduleConverter.convertToDatabaseColumn(weeklySchedule));
+    }
+}
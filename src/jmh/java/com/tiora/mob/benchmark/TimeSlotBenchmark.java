@@ -0,0 +1,110 @@
+package com.tiora.mob.benchmark;
+
+import com.tiora.mob.dto.response.AvailableTimeSlotsResponse;
+import com.tiora.mob.entity.Appointment;
+import com.tiora.mob.entity.WorkingHours;
+import com.tiora.mob.util.DayOccupancy;
+import com.tiora.mob.util.TimeSlotUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the bitmap slot engine against the previous per-slot linear scan over appointments.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeSlotBenchmark {
+
+    @Param({"0", "8", "24", "64"})
+    public int appointmentCount;
+
+    @Param({"30", "90"})
+    public int durationMinutes;
+
+    private WorkingHours workingHours;
+    private List<Appointment> appointments;
+    private DayOccupancy occupancy;
+
+    @Setup
+    public void setUp() {
+        LocalDate day = LocalDate.of(2025, 9, 8);
+        workingHours = new WorkingHours(LocalTime.of(9, 0), LocalTime.of(18, 0));
+        appointments = new ArrayList<>(appointmentCount);
+        if (appointmentCount > 0) {
+            int window = 9 * 60 / appointmentCount;
+            int length = Math.max(5, window / 2);
+            for (int i = 0; i < appointmentCount; i++) {
+                LocalDateTime start = day.atTime(9, 0).plusMinutes((long) i * window);
+                Appointment appointment = new Appointment();
+                appointment.setAppointmentDate(start);
+                appointment.setEstimatedEndTime(start.plusMinutes(length));
+                appointment.setStatus(Appointment.AppointmentStatus.SCHEDULED);
+                appointments.add(appointment);
+            }
+        }
+        occupancy = TimeSlotUtil.occupancyOf(day, appointments);
+    }
+
+    @Benchmark
+    public List<AvailableTimeSlotsResponse.TimeSlot> linearScan() {
+        return LinearScan.calculateAvailableSlots(workingHours, appointments, durationMinutes);
+    }
+
+    @Benchmark
+    public List<AvailableTimeSlotsResponse.TimeSlot> bitmapFromAppointments() {
+        return TimeSlotUtil.calculateAvailableSlots(workingHours, appointments, durationMinutes);
+    }
+
+    @Benchmark
+    public List<AvailableTimeSlotsResponse.TimeSlot> bitmapPrebuilt() {
+        return TimeSlotUtil.calculateAvailableSlots(workingHours, occupancy, durationMinutes);
+    }
+
+    /**
+     * The slot calculation as it was before the occupancy bitmap, kept here as the baseline.
+     */
+    static final class LinearScan {
+        static List<AvailableTimeSlotsResponse.TimeSlot> calculateAvailableSlots(
+                WorkingHours workingHours, List<Appointment> appointments, int serviceDurationMinutes) {
+            List<AvailableTimeSlotsResponse.TimeSlot> slots = new ArrayList<>();
+            if (workingHours == null) return slots;
+            LocalTime start = workingHours.getStartTime();
+            LocalTime end = workingHours.getEndTime();
+            List<LocalTime[]> occupied = new ArrayList<>();
+            for (Appointment appt : appointments) {
+                occupied.add(new LocalTime[] {
+                    appt.getAppointmentDate().toLocalTime(),
+                    appt.getEstimatedEndTime().toLocalTime()
+                });
+            }
+            LocalTime slotStart = start;
+            while (slotStart.plusMinutes(serviceDurationMinutes).compareTo(end) <= 0) {
+                LocalTime slotEnd = slotStart.plusMinutes(serviceDurationMinutes);
+                boolean overlaps = false;
+                for (LocalTime[] interval : occupied) {
+                    if (!(slotEnd.compareTo(interval[0]) <= 0 || slotStart.compareTo(interval[1]) >= 0)) {
+                        overlaps = true;
+                        break;
+                    }
+                }
+                if (!overlaps) {
+                    slots.add(new AvailableTimeSlotsResponse.TimeSlot(slotStart, slotEnd, true, null));
+                } else {
+                    slots.add(new AvailableTimeSlotsResponse.TimeSlot(slotStart, slotEnd, false, "Already booked"));
+                }
+                slotStart = slotStart.plusMinutes(15);
+            }
+            return slots;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.tiora.mob.service;
+
+import com.tiora.mob.dto.response.AppointmentResponse;
+import com.tiora.mob.entity.Appointment;
+import com.tiora.mob.entity.Customer;
+import com.tiora.mob.entity.Employee;
+import com.tiora.mob.entity.Salon;
+import com.tiora.mob.entity.Service;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to response mapping done for every appointment returned by the booking and history endpoints.
+ * Lives in the service package because the mapper is package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppointmentMappingBenchmark {
+
+    private final AppointmentService appointmentService = new AppointmentService();
+    private Appointment appointment;
+
+    @Setup
+    public void setUp() {
+        Customer customer = new Customer();
+        customer.setId(123L);
+        customer.setFirstName("Nimal");
+        customer.setLastName("Perera");
+        customer.setPhoneNumber("+94771234567");
+
+        Service service = new Service();
+        service.setId(7L);
+        service.setName("Haircut");
+        service.setPrice(new BigDecimal("1500.00"));
+        service.setDurationMinutes(30);
+
+        Employee employee = new Employee();
+        employee.setEmployeeId(12L);
+        employee.setFirstName("Kasun");
+        employee.setLastName("Silva");
+
+        Salon salon = new Salon();
+        salon.setId(1L);
+        salon.setName("Tiora Colombo");
+
+        LocalDateTime start = LocalDateTime.of(2025, 9, 8, 15, 30);
+        appointment = new Appointment();
+        appointment.setId(4567L);
+        appointment.setAppointmentNumber("APT-20250908-4567");
+        appointment.setCustomer(customer);
+        appointment.setService(service);
+        appointment.setEmployee(employee);
+        appointment.setSalon(salon);
+        appointment.setAppointmentDate(start);
+        appointment.setEstimatedEndTime(start.plusMinutes(30));
+        appointment.setStatus(Appointment.AppointmentStatus.SCHEDULED);
+        appointment.setPaymentStatus(Appointment.PaymentStatus.PENDING);
+        appointment.setServicePrice(new BigDecimal("1500.00"));
+        appointment.setDiscountAmount(BigDecimal.ZERO);
+        appointment.setTaxAmount(BigDecimal.ZERO);
+        appointment.setTotalAmount(new BigDecimal("1500.00"));
+        appointment.setCreatedAt(start.minusDays(1));
+        appointment.setUpdatedAt(start.minusDays(1));
+    }
+
+    @Benchmark
+    public AppointmentResponse mapToAppointmentResponse() {
+        return appointmentService.mapToAppointmentResponse(appointment);
+    }
+}
@@ -0,0 +1,76 @@
+package com.tiora.mob.service;
+
+import com.tiora.mob.dto.StreamEventEnvelope;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and encoding the Redis stream entries published for appointment events, without the XADD
+ * itself, in each {@link StreamEventCodec.Format}; plus decoding a created event on the consumer side.
+ * Lives in the service package because the builders are package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamFieldsBenchmark {
+
+    @Param({"LEGACY", "JSON", "CBOR", "SMILE"})
+    private String format;
+
+    private StreamEventCodec codec;
+    private MobileAppointmentStreamPublisher publisher;
+    private Map<String, Object> appointmentData;
+    private Map<String, byte[]> createdEntry;
+
+    @Setup
+    public void setUp() {
+        codec = new StreamEventCodec(StreamEventCodec.Format.valueOf(format));
+        // Builders never touch Redis, so no template is needed
+        publisher = new MobileAppointmentStreamPublisher(null, null, codec);
+        appointmentData = new HashMap<>();
+        appointmentData.put("appointment_number", "APT-20250908-4567");
+        appointmentData.put("customer_name", "Nimal Perera");
+        appointmentData.put("customer_phone", "+94771234567");
+        appointmentData.put("service_names", List.of("Haircut", "Beard Trim"));
+        appointmentData.put("appointment_date", "2025-09-08T15:30:00");
+        appointmentData.put("status", "SCHEDULED");
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("created_via", "mobile_app");
+        metadata.put("total_amount", "2300.00");
+        appointmentData.put("metadata", metadata);
+
+        // What a consumer reads back: raw values, as XREADGROUP returns them
+        createdEntry = new HashMap<>();
+        codec.encode(publisher.buildAppointmentCreatedEvent(1L, 2L, 4567L, 123L, 12L, appointmentData))
+            .forEach((name, value) -> createdEntry.put(name, value instanceof byte[] bytes
+                ? bytes : value.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public Map<String, ?> appointmentCreatedFields() {
+        return codec.encode(publisher.buildAppointmentCreatedEvent(1L, 2L, 4567L, 123L, 12L, appointmentData));
+    }
+
+    @Benchmark
+    public Map<String, ?> appointmentUpdatedFields() {
+        return codec.encode(publisher.buildAppointmentUpdatedEvent(1L, 4567L, "SCHEDULED", "CANCELLED"));
+    }
+
+    @Benchmark
+    public Map<String, ?> customerNotificationFields() {
+        return codec.encode(publisher.buildCustomerNotificationEvent(123L, 4567L, "COMPLETED", "Your appointment is completed"));
+    }
+
+    @Benchmark
+    public StreamEventEnvelope appointmentCreatedDecode() {
+        return codec.decode(createdEntry);
+    }
+}
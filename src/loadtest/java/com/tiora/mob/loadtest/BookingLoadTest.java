@@ -0,0 +1,292 @@
+package com.tiora.mob.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tiora.mob.TioraMobApiApplication;
+import com.tiora.mob.support.StandIns;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test of the booking path. Starts the application against embedded Postgres and Redis,
+ * seeds a salon, then has {@code loadtest.users} virtual users repeat
+ * availability → hold → book → pay → complete for {@code loadtest.duration-seconds} after a warm-up,
+ * and reports throughput, p50/p99 latency and conflict rate per endpoint.
+ * <p>
+ * Virtual users pick random barbers, days and free slots, so concurrent holds and bookings of the
+ * same slot are expected and show up as 409s. Each barber's booking window is
+ * {@code loadtest.days} days wide and slides forward once its first day is full.
+ */
+public final class BookingLoadTest {
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final String baseUrl;
+    private final LoadTestFixtures fixtures;
+    private final int days;
+
+    private final EndpointStats availability = new EndpointStats("GET /v1/availability/time-slots");
+    private final EndpointStats hold = new EndpointStats("POST /v1/availability/holds");
+    private final EndpointStats book = new EndpointStats("POST /mobile/appointments");
+    private final EndpointStats pay = new EndpointStats("PUT /mobile/appointments/customer-paid/{id}");
+    private final EndpointStats complete = new EndpointStats("PUT /mobile/appointments/status");
+    private final List<EndpointStats> endpoints = List.of(availability, hold, book, pay, complete);
+
+    private final AtomicLong flowsStarted = new AtomicLong();
+    private final AtomicLong flowsCompleted = new AtomicLong();
+    private final AtomicLong flowsWithoutFreeSlot = new AtomicLong();
+    // Per barber: offset (from tomorrow) of the first day that still had a free slot
+    private final AtomicIntegerArray firstOpenDay;
+
+    private volatile boolean running = true;
+
+    private BookingLoadTest(String baseUrl, LoadTestFixtures fixtures, int days) {
+        this.baseUrl = baseUrl;
+        this.fixtures = fixtures;
+        this.days = days;
+        this.firstOpenDay = new AtomicIntegerArray(fixtures.barberIds.size());
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = Integer.getInteger("loadtest.users", 32);
+        int durationSeconds = Integer.getInteger("loadtest.duration-seconds", 60);
+        int warmupSeconds = Integer.getInteger("loadtest.warmup-seconds", 10);
+        int barbers = Integer.getInteger("loadtest.barbers", 8);
+        int days = Integer.getInteger("loadtest.days", 3);
+        Path result = Path.of(System.getProperty("loadtest.result", "target/loadtest-result.json"));
+
+        try (StandIns standIns = StandIns.start()) {
+            Map<String, Object> properties = new LinkedHashMap<>(standIns.applicationProperties());
+            properties.put("server.port", 0);
+            properties.put("spring.datasource.hikari.pool-name", "LoadTestPool");
+            properties.put("app.availability.materialize.enabled", false);
+            // Request logging at DEBUG would measure the console rather than the booking path
+            properties.put("logging.level.com.tiora.mob", "WARN");
+            properties.put("logging.level.com.tiora.mob.service", "WARN");
+            properties.put("logging.level.root", "WARN");
+
+            // As command-line arguments, so they win over application.properties (builder defaults would not)
+            List<String> arguments = new ArrayList<>(List.of(args));
+            properties.forEach((name, value) -> arguments.add("--" + name + "=" + value));
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(TioraMobApiApplication.class)
+                .run(arguments.toArray(String[]::new));
+            try {
+                StandIns.applySqlScripts(context.getBean(DataSource.class), Path.of("sql"));
+                LoadTestFixtures fixtures = LoadTestFixtures.seed(context, barbers, users);
+                int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+                BookingLoadTest test = new BookingLoadTest("http://localhost:" + port + "/api", fixtures, days);
+                Map<String, Object> report = test.run(users, warmupSeconds, durationSeconds);
+                report.put("config", Map.of("users", users, "duration_seconds", durationSeconds,
+                    "warmup_seconds", warmupSeconds, "barbers", barbers, "days", days,
+                    "profiles", List.of(context.getEnvironment().getActiveProfiles())));
+                if (result.getParent() != null) {
+                    Files.createDirectories(result.getParent());
+                }
+                test.objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValue(result.toFile(), report);
+                System.out.println("Result written to " + result.toAbsolutePath());
+            } finally {
+                context.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    private Map<String, Object> run(int users, int warmupSeconds, int durationSeconds) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        for (int i = 0; i < users; i++) {
+            int user = i;
+            pool.execute(() -> {
+                while (running) {
+                    flow(user);
+                }
+            });
+        }
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+        endpoints.forEach(EndpointStats::reset);
+        flowsStarted.set(0);
+        flowsCompleted.set(0);
+        flowsWithoutFreeSlot.set(0);
+        long measureStart = System.nanoTime();
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        double seconds = (System.nanoTime() - measureStart) / 1e9;
+        List<Map<String, Object>> summaries = new ArrayList<>();
+        for (EndpointStats endpoint : endpoints) {
+            summaries.add(endpoint.summarize(seconds));
+        }
+        running = false;
+        pool.shutdown();
+        pool.awaitTermination(30, TimeUnit.SECONDS);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("measured_seconds", seconds);
+        report.put("flows_started", flowsStarted.get());
+        report.put("flows_completed", flowsCompleted.get());
+        report.put("flows_completed_per_second", flowsCompleted.get() / seconds);
+        report.put("flows_without_free_slot", flowsWithoutFreeSlot.get());
+        report.put("endpoints", summaries);
+        print(report, summaries);
+        return report;
+    }
+
+    /**
+     * One customer journey. Stops at the first step that does not succeed; a 409 there is the
+     * expected outcome of losing a race for a slot, not a failure of the run.
+     */
+    private void flow(int user) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String token = "Bearer " + fixtures.customerTokens.get(user);
+        Long customerId = fixtures.customerIds.get(user);
+        int barber = random.nextInt(fixtures.barberIds.size());
+        Long barberId = fixtures.barberIds.get(barber);
+        int service = random.nextInt(fixtures.serviceIds.size());
+        Long serviceId = fixtures.serviceIds.get(service);
+        int dayOffset = firstOpenDay.get(barber) + random.nextInt(days);
+        LocalDate date = LocalDate.now().plusDays(1 + dayOffset);
+        flowsStarted.incrementAndGet();
+
+        JsonNode slots = call(availability, HttpRequest.newBuilder(URI.create(baseUrl
+                + "/api/v1/availability/time-slots?barber_id=" + barberId + "&service_ids=" + serviceId
+                + "&date=" + date + "&salonId=" + fixtures.salonId))
+            .header("Authorization", token)
+            .GET());
+        if (slots == null) {
+            return;
+        }
+        List<LocalTime> free = new ArrayList<>();
+        for (JsonNode slot : slots.path("available_slots")) {
+            if (slot.path("is_available").asBoolean(false)) {
+                free.add(LocalTime.parse(slot.path("start_time").asText()));
+            }
+        }
+        if (free.isEmpty()) {
+            flowsWithoutFreeSlot.incrementAndGet();
+            firstOpenDay.compareAndSet(barber, dayOffset, dayOffset + 1);
+            return;
+        }
+        LocalDateTime start = date.atTime(free.get(random.nextInt(free.size())));
+        LocalDateTime end = start.plusMinutes(fixtures.serviceDurations.get(service));
+
+        JsonNode held = call(hold, json(HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/availability/holds"))
+            .header("Authorization", token), "POST", Map.of(
+                "barber_id", barberId,
+                "salon_id", fixtures.salonId,
+                "service_ids", List.of(serviceId),
+                "start_time", DATE_TIME.format(start),
+                "customer_id", customerId)));
+        if (held == null) {
+            return;
+        }
+
+        Map<String, Object> booking = new LinkedHashMap<>();
+        booking.put("serviceIds", List.of(serviceId));
+        booking.put("employeeId", barberId);
+        booking.put("salonId", fixtures.salonId);
+        booking.put("branchId", fixtures.branchId);
+        booking.put("customerId", customerId);
+        booking.put("appointmentDate", DATE_TIME.format(start));
+        booking.put("estimatedEndTime", DATE_TIME.format(end));
+        booking.put("servicePrice", fixtures.servicePrices.get(service));
+        booking.put("holdId", held.path("hold_id").asText());
+        JsonNode appointment = call(book, json(HttpRequest.newBuilder(URI.create(baseUrl + "/mobile/appointments"))
+            .header("Authorization", token)
+            .header("Idempotency-Key", UUID.randomUUID().toString()), "POST", booking));
+        if (appointment == null) {
+            return;
+        }
+        long appointmentId = appointment.path("id").asLong();
+
+        JsonNode paid = call(pay, HttpRequest.newBuilder(URI.create(baseUrl + "/mobile/appointments/customer-paid/" + appointmentId))
+            .header("Authorization", token)
+            .header("Idempotency-Key", UUID.randomUUID().toString())
+            .PUT(HttpRequest.BodyPublishers.noBody()));
+        if (paid == null) {
+            return;
+        }
+
+        JsonNode completed = call(complete, json(HttpRequest.newBuilder(URI.create(baseUrl + "/mobile/appointments/status"))
+            .header("Authorization", token), "PUT", Map.of("appointmentId", appointmentId, "status", "COMPLETED")));
+        if (completed != null) {
+            flowsCompleted.incrementAndGet();
+        }
+    }
+
+    private HttpRequest.Builder json(HttpRequest.Builder builder, String method, Object body) {
+        try {
+            return builder.header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not serialize request body", e);
+        }
+    }
+
+    /**
+     * Send the request and record it against the endpoint. Returns the parsed body of a 2xx
+     * response (an empty node when there is none), null otherwise.
+     */
+    private JsonNode call(EndpointStats endpoint, HttpRequest.Builder request) {
+        long started = System.nanoTime();
+        int status = 0;
+        try {
+            HttpResponse<byte[]> response = client.send(request.timeout(Duration.ofSeconds(30)).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+            status = response.statusCode();
+            if (status < 200 || status >= 300) {
+                return null;
+            }
+            byte[] body = response.body();
+            return body.length == 0 ? objectMapper.createObjectNode() : objectMapper.readTree(body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+            return null;
+        } catch (Exception e) {
+            return null;
+        } finally {
+            endpoint.record((System.nanoTime() - started) / 1000, status);
+        }
+    }
+
+    private static void print(Map<String, Object> report, List<Map<String, Object>> summaries) {
+        System.out.printf("%n%-46s %9s %10s %9s %9s %9s %8s%n",
+            "Endpoint", "Requests", "Req/s", "p50 ms", "p99 ms", "Conflict", "Errors");
+        for (Map<String, Object> summary : summaries) {
+            System.out.printf("%-46s %9d %10.1f %9.2f %9.2f %8.2f%% %8d%n",
+                summary.get("endpoint"), (Integer) summary.get("requests"),
+                (Double) summary.get("throughput_per_second"), (Double) summary.get("p50_ms"),
+                (Double) summary.get("p99_ms"), (Double) summary.get("conflict_rate") * 100,
+                (Long) summary.get("errors"));
+        }
+        System.out.printf("%nFlows: %d started, %d completed (%.1f/s), %d found no free slot, over %.1f s%n",
+            (Long) report.get("flows_started"), (Long) report.get("flows_completed"),
+            (Double) report.get("flows_completed_per_second"), (Long) report.get("flows_without_free_slot"),
+            (Double) report.get("measured_seconds"));
+    }
+}
@@ -0,0 +1,73 @@
+package com.tiora.mob.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latencies and outcomes of one endpoint. Every latency is kept, so percentiles are exact;
+ * a run of a few minutes at a few thousand requests per second fits comfortably in memory.
+ */
+final class EndpointStats {
+
+    private final String name;
+    private long[] latenciesMicros = new long[4096];
+    private int size;
+    private long conflicts;
+    private long errors;
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    /**
+     * Record one call. 409 counts as a conflict (slot taken, stale version, key in progress),
+     * any other non-2xx status or a failed call (status 0) as an error.
+     */
+    synchronized void record(long micros, int status) {
+        if (size == latenciesMicros.length) {
+            latenciesMicros = Arrays.copyOf(latenciesMicros, size * 2);
+        }
+        latenciesMicros[size++] = micros;
+        if (status == 409) {
+            conflicts++;
+        } else if (status < 200 || status >= 300) {
+            errors++;
+        }
+    }
+
+    synchronized void reset() {
+        size = 0;
+        conflicts = 0;
+        errors = 0;
+    }
+
+    synchronized Map<String, Object> summarize(double seconds) {
+        long[] sorted = Arrays.copyOf(latenciesMicros, size);
+        Arrays.sort(sorted);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("endpoint", name);
+        summary.put("requests", size);
+        summary.put("throughput_per_second", seconds > 0 ? size / seconds : 0.0);
+        summary.put("p50_ms", percentile(sorted, 0.50) / 1000.0);
+        summary.put("p99_ms", percentile(sorted, 0.99) / 1000.0);
+        summary.put("max_ms", size > 0 ? sorted[size - 1] / 1000.0 : 0.0);
+        summary.put("conflicts", conflicts);
+        summary.put("conflict_rate", size > 0 ? (double) conflicts / size : 0.0);
+        summary.put("errors", errors);
+        return summary;
+    }
+
+    // Nearest-rank percentile
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
@@ -0,0 +1,137 @@
+package com.tiora.mob.loadtest;
+
+import com.tiora.mob.config.JwtConfig;
+import com.tiora.mob.entity.Branch;
+import com.tiora.mob.entity.Customer;
+import com.tiora.mob.entity.Employee;
+import com.tiora.mob.entity.Salon;
+import com.tiora.mob.entity.Service;
+import com.tiora.mob.repository.BranchRepository;
+import com.tiora.mob.repository.CustomerRepository;
+import com.tiora.mob.repository.EmployeeRepository;
+import com.tiora.mob.repository.SalonRepository;
+import com.tiora.mob.repository.ServiceRepository;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.springframework.context.ApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Seed data for a load test: one salon and branch, a set of barbers,
+ * three services of different lengths and one customer (with a signed token) per virtual user.
+ */
+final class LoadTestFixtures {
+
+    final Long salonId;
+    final Long branchId;
+    final List<Long> barberIds;
+    final List<Long> serviceIds;
+    final List<BigDecimal> servicePrices;
+    final List<Integer> serviceDurations;
+    final List<Long> customerIds;
+    final List<String> customerTokens;
+
+    private LoadTestFixtures(Long salonId, Long branchId, List<Long> barberIds, List<Long> serviceIds,
+                             List<BigDecimal> servicePrices, List<Integer> serviceDurations,
+                             List<Long> customerIds, List<String> customerTokens) {
+        this.salonId = salonId;
+        this.branchId = branchId;
+        this.barberIds = barberIds;
+        this.serviceIds = serviceIds;
+        this.servicePrices = servicePrices;
+        this.serviceDurations = serviceDurations;
+        this.customerIds = customerIds;
+        this.customerTokens = customerTokens;
+    }
+
+    static LoadTestFixtures seed(ApplicationContext context, int barbers, int customers) {
+        SalonRepository salonRepository = context.getBean(SalonRepository.class);
+        BranchRepository branchRepository = context.getBean(BranchRepository.class);
+        EmployeeRepository employeeRepository = context.getBean(EmployeeRepository.class);
+        ServiceRepository serviceRepository = context.getBean(ServiceRepository.class);
+        CustomerRepository customerRepository = context.getBean(CustomerRepository.class);
+        JwtConfig jwtConfig = context.getBean(JwtConfig.class);
+        LocalDateTime now = LocalDateTime.now();
+
+        Salon salon = new Salon();
+        salon.setName("Load Test Salon");
+        salon.setAddress("1 Bench Street");
+        salon.setPhoneNumber("0110000000");
+        salon.setStatus(Salon.SalonStatus.ACTIVE);
+        salon.setCreatedAt(now);
+        salon = salonRepository.save(salon);
+
+        Branch branch = new Branch();
+        branch.setSalon(salon);
+        branch.setBranchName("Main");
+        branch.setStatus(Branch.BranchStatus.ACTIVE);
+        branch.setSalonType(Branch.SalonType.GENTS);
+        branch.setCreatedAt(now);
+        branch = branchRepository.save(branch);
+
+        List<Long> barberIds = new ArrayList<>();
+        for (int i = 0; i < barbers; i++) {
+            Employee barber = Employee.builder()
+                .firstName("Barber")
+                .lastName(String.valueOf(i))
+                .email("barber" + i + "@loadtest.local")
+                .phoneNumber(String.format("07100%05d", i))
+                .role(Employee.Role.BARBER)
+                .status(Employee.EmployeeStatus.ACTIVE)
+                .salon(salon)
+                .branch(branch)
+                .createdAt(now)
+                .build();
+            barberIds.add(employeeRepository.save(barber).getEmployeeId());
+        }
+
+        List<Long> serviceIds = new ArrayList<>();
+        List<BigDecimal> servicePrices = new ArrayList<>();
+        List<Integer> serviceDurations = new ArrayList<>();
+        for (Map.Entry<Integer, String> entry : Map.of(30, "1500.00", 45, "2200.00", 60, "3000.00").entrySet()) {
+            Service service = new Service();
+            service.setName("Cut " + entry.getKey());
+            service.setPrice(new BigDecimal(entry.getValue()));
+            service.setDurationMinutes(entry.getKey());
+            service.setCategory(Service.ServiceCategory.HAIRCUT);
+            service.setStatus(Service.ServiceStatus.ACTIVE);
+            service.setGenderAvailability(Service.GenderAvailability.BOTH);
+            service.setSalon(salon);
+            service.setCreatedAt(now);
+            service = serviceRepository.save(service);
+            serviceIds.add(service.getId());
+            servicePrices.add(service.getPrice());
+            serviceDurations.add(service.getDurationMinutes());
+        }
+
+        List<Long> customerIds = new ArrayList<>();
+        List<String> customerTokens = new ArrayList<>();
+        for (int i = 0; i < customers; i++) {
+            Customer customer = new Customer();
+            customer.setPhoneNumber(String.format("07700%05d", i));
+            customer.setFirstName("Customer");
+            customer.setLastName(String.valueOf(i));
+            customer.setEmail("customer" + i + "@loadtest.local");
+            customer.setStatus(Customer.CustomerStatus.ACTIVE);
+            customer.setCreatedAt(now);
+            customer = customerRepository.save(customer);
+            customerIds.add(customer.getId());
+            // Same claims and key as AuthService issues at login, valid for the whole run
+            customerTokens.add(Jwts.builder()
+                .setClaims(Map.of("customerId", customer.getId()))
+                .setSubject(customer.getPhoneNumber())
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 24 * 3600_000L))
+                .signWith(jwtConfig.getSecretKey(), SignatureAlgorithm.HS256)
+                .compact());
+        }
+        return new LoadTestFixtures(salon.getId(), branch.getBranchId(), barberIds, serviceIds,
+            servicePrices, serviceDurations, customerIds, customerTokens);
+    }
+}
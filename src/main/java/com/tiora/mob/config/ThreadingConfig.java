@@ -0,0 +1,65 @@
+package com.tiora.mob.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Threads for long-running stream consumers, and the request concurrency cap used in virtual-thread mode.
+ * {@code spring.threads.virtual.enabled=true} (the {@code virtual} profile, Java 21+ runtime) also makes
+ * Spring Boot run Tomcat requests and {@code @Scheduled} jobs on virtual threads.
+ */
+@Configuration
+public class ThreadingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadingConfig.class);
+
+    @Bean("streamConsumerThreadFactory")
+    public ThreadFactory streamConsumerThreadFactory(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return new VirtualThreadTaskExecutor("stream-consumer-").getVirtualThreadFactory();
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("stream-consumer-");
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    /**
+     * The cap follows the Hikari pool ({@code requests-per-connection} times its maximum size),
+     * so resizing the pool cannot leave the filter admitting far more or far fewer requests than it serves.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.concurrency-limit.enabled", havingValue = "true")
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+            @Value("${app.concurrency-limit.requests-per-connection:4}") int requestsPerConnection,
+            @Value("${app.concurrency-limit.max-wait-ms:2000}") long maxWaitMillis,
+            MeterRegistry meterRegistry) {
+        if (poolSize < 1 || requestsPerConnection < 1) {
+            throw new IllegalStateException("Concurrency limit needs a positive pool size and requests-per-connection, got "
+                + poolSize + " and " + requestsPerConnection);
+        }
+        int maxInFlight = poolSize * requestsPerConnection;
+        logger.info("Capping in-flight requests at {} ({} per connection of a {}-connection pool)",
+            maxInFlight, requestsPerConnection, poolSize);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(maxInFlight, maxWaitMillis);
+        Gauge.builder("http.server.concurrency.available", filter, ConcurrencyLimitFilter::availablePermits)
+            .description("Request permits not in use")
+            .register(meterRegistry);
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        // Ahead of security, so rejected requests cost no token parsing
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
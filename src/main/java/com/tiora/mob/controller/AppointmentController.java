@@ -3,10 +3,14 @@ package com.tiora.mob.controller;
 
 
 import com.tiora.mob.dto.request.AppointmentRequest;
+import com.tiora.mob.dto.request.SlotHoldRequest;
 import com.tiora.mob.dto.response.AppointmentResponse;
 import com.tiora.mob.dto.response.AppointmentActivityResponse;
+import com.tiora.mob.dto.response.SlotHoldResponse;
 import com.tiora.mob.entity.Appointment;
 import com.tiora.mob.service.AppointmentService;
+import com.tiora.mob.service.IdempotencyService;
+import com.tiora.mob.service.SlotHoldService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -24,12 +28,17 @@ import org.slf4j.LoggerFactory;
 @RequestMapping("/mobile/appointments")
 public class AppointmentController {
     @PutMapping("/customer-paid/{appointmentId}")
-    public ResponseEntity<?> updateCustomerPaid(@PathVariable Long appointmentId) {
-        Map<String, Object> result = appointmentService.updateCustomerPaid(appointmentId);
-        if (!(Boolean) result.getOrDefault("success", false)) {
-            return ResponseEntity.badRequest().body(Map.of("error", result.get("message")));
-        }
-        return ResponseEntity.ok(Map.of("message", result.get("message")));
+    public ResponseEntity<?> updateCustomerPaid(
+            @PathVariable Long appointmentId,
+            @RequestHeader(value = "Authorization", required = false) String token,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("customer-paid", token, idempotencyKey, appointmentId, () -> {
+            Map<String, Object> result = appointmentService.updateCustomerPaid(appointmentId);
+            if (!(Boolean) result.getOrDefault("success", false)) {
+                return ResponseEntity.badRequest().body(Map.of("error", result.get("message")));
+            }
+            return ResponseEntity.ok(Map.of("message", result.get("message")));
+        });
     }
     @PutMapping("/status")
     public ResponseEntity<?> updateAppointmentStatus(
@@ -43,14 +52,46 @@ public class AppointmentController {
     @Autowired
     private AppointmentService appointmentService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private SlotHoldService slotHoldService;
+
     @PostMapping
-    public ResponseEntity<AppointmentResponse> createAppointment(
+    public ResponseEntity<?> createAppointment(
             @Valid @RequestBody AppointmentRequest request,
-            @RequestHeader("Authorization") String token) {
+            @RequestHeader("Authorization") String token,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         logger.info("createAppointment called with request: {}", request);
-        AppointmentResponse response = appointmentService.createAppointment(token, request);
-        logger.info("createAppointment response: {}", response);
-        return ResponseEntity.ok(response);
+        // A retried booking with the same key gets the first booking back instead of a conflict
+        return idempotencyService.execute("create-appointment", token, idempotencyKey, request, () -> {
+            AppointmentResponse response = appointmentService.createAppointment(token, request);
+            logger.info("createAppointment response: {}", response);
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    /**
+     * Hold a slot for the signed-in customer while they check out. The hold lapses after the unpaid-appointment
+     * window unless an appointment is created with its hold id. 409 when the slot is booked or held,
+     * 429 when the customer already holds the maximum number of slots.
+     */
+    @PostMapping("/holds")
+    public ResponseEntity<SlotHoldResponse> holdSlot(
+            @Valid @RequestBody SlotHoldRequest request,
+            @RequestHeader("Authorization") String token) {
+        return ResponseEntity.ok(slotHoldService.hold(token, request));
+    }
+
+    @DeleteMapping("/holds/{holdId}")
+    public ResponseEntity<Void> releaseSlotHold(
+            @PathVariable String holdId,
+            @RequestParam(name = "barber_id") Long barberId,
+            @RequestParam(name = "date") String date,
+            @RequestHeader("Authorization") String token) {
+        slotHoldService.release(token, barberId, java.time.LocalDate.parse(date), holdId);
+        return ResponseEntity.noContent().build();
     }
 
     @GetMapping
@@ -28,4 +28,40 @@ public class AvailabilityController {
         );
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Bookable dates for a barber and services over a date range, for painting a booking calendar
+     * in one request instead of one /time-slots call per day.
+     */
+    @GetMapping("/dates")
+    public ResponseEntity<com.tiora.mob.dto.response.AvailableDatesResponse> getAvailableDates(
+            @RequestParam(name = "barber_id") Long barberId,
+            @RequestParam(name = "service_ids") String serviceIds,
+            @RequestParam(name = "salonId") Long salonId,
+            @RequestParam(name = "start_date", required = false) String startDate,
+            @RequestParam(name = "days", defaultValue = "14") int days
+    ) {
+        com.tiora.mob.dto.response.AvailableDatesResponse response = availabilityService.getAvailableDates(
+            salonId, serviceIds, barberId, startDate, days
+        );
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Branch-wide availability for customers who do not mind which barber they get:
+     * every free slot on the date with the barbers who can take it.
+     */
+    @GetMapping("/barbers")
+    public ResponseEntity<com.tiora.mob.dto.response.AvailableBarbersResponse> getAvailableBarbers(
+            @RequestParam(name = "branch_id") Long branchId,
+            @RequestParam(name = "service_ids") String serviceIds,
+            @RequestParam(name = "date") String date,
+            @RequestParam(name = "salonId") Long salonId,
+            @RequestParam(name = "customerGender", required = false) String customerGender
+    ) {
+        com.tiora.mob.dto.response.AvailableBarbersResponse response = availabilityService.getAvailableBarbersForBranch(
+            salonId, branchId, serviceIds, date, customerGender
+        );
+        return ResponseEntity.ok(response);
+    }
 }
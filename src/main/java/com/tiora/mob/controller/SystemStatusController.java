@@ -1,7 +1,9 @@
 package com.tiora.mob.controller;
 
+import com.tiora.mob.exception.UnauthorizedException;
 import com.tiora.mob.service.AppointmentStreamPublisher;
 import com.tiora.mob.service.BarberNotificationConsumer;
+import com.tiora.mob.service.StreamReclaimService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
@@ -14,7 +16,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -29,6 +34,13 @@ public class SystemStatusController {
 
     @Autowired
     private BarberNotificationConsumer barberNotificationConsumer;
+
+    @Autowired
+    private StreamReclaimService streamReclaimService;
+
+    // Shared secret for the stream admin endpoints below; they stay closed while it is blank
+    @Value("${app.streams.admin-token:}")
+    private String streamsAdminToken;
     
     @Autowired
     @Qualifier("customStringRedisTemplate")
@@ -208,4 +220,75 @@ public class SystemStatusController {
             ));
         }
     }
+
+    /**
+     * Consumer groups of this instance: pending entries and dead-letter backlog per stream
+     */
+    @GetMapping("/streams")
+    @Operation(
+        summary = "Stream consumer status",
+        description = "Pending entries and dead letters of every consumed Redis stream (requires X-Admin-Token)"
+    )
+    public ResponseEntity<List<Map<String, Object>>> streamStatus(
+            @RequestHeader(value = "X-Admin-Token", required = false) String adminToken) {
+        requireStreamsAdmin(adminToken);
+        return ResponseEntity.ok(streamReclaimService.status());
+    }
+
+    /**
+     * Newest dead letters of a consumed stream
+     */
+    @GetMapping("/streams/dlq")
+    @Operation(
+        summary = "List dead letters",
+        description = "Entries moved to {stream}:dlq after too many failed deliveries, newest first (requires X-Admin-Token)"
+    )
+    public ResponseEntity<List<Map<String, Object>>> deadLetters(
+            @RequestParam("stream") String stream,
+            @RequestParam(value = "count", defaultValue = "50") int count,
+            @RequestHeader(value = "X-Admin-Token", required = false) String adminToken) {
+        requireStreamsAdmin(adminToken);
+        return ResponseEntity.ok(streamReclaimService.deadLetters(stream, Math.min(Math.max(count, 1), 500)));
+    }
+
+    /**
+     * Put dead letters back on their source stream
+     */
+    @PostMapping("/streams/dlq/replay")
+    @Operation(
+        summary = "Replay dead letters",
+        description = "Append the given dead letters to their source stream again and remove them from the DLQ (requires X-Admin-Token)"
+    )
+    public ResponseEntity<Map<String, String>> replayDeadLetters(
+            @RequestParam("stream") String stream,
+            @RequestParam("ids") List<String> ids,
+            @RequestHeader(value = "X-Admin-Token", required = false) String adminToken) {
+        requireStreamsAdmin(adminToken);
+        logger.info("Replaying {} dead letters of {}", ids.size(), stream);
+        return ResponseEntity.ok(streamReclaimService.replay(stream, ids));
+    }
+
+    /**
+     * Drop dead letters for good
+     */
+    @DeleteMapping("/streams/dlq")
+    @Operation(
+        summary = "Discard dead letters",
+        description = "Delete the given entries from {stream}:dlq (requires X-Admin-Token)"
+    )
+    public ResponseEntity<Map<String, Object>> discardDeadLetters(
+            @RequestParam("stream") String stream,
+            @RequestParam("ids") List<String> ids,
+            @RequestHeader(value = "X-Admin-Token", required = false) String adminToken) {
+        requireStreamsAdmin(adminToken);
+        logger.info("Discarding {} dead letters of {}", ids.size(), stream);
+        return ResponseEntity.ok(Map.of("removed", streamReclaimService.discard(stream, ids)));
+    }
+
+    private void requireStreamsAdmin(String adminToken) {
+        if (streamsAdminToken.isBlank() || adminToken == null || !MessageDigest.isEqual(
+                streamsAdminToken.getBytes(StandardCharsets.UTF_8), adminToken.getBytes(StandardCharsets.UTF_8))) {
+            throw new UnauthorizedException("Stream admin token required");
+        }
+    }
 }
@@ -0,0 +1,82 @@
+package com.tiora.mob.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * One event on a Redis stream, whatever its wire format (see {@code StreamEventCodec}).
+ * Property names are kept short because the envelope is written once per XADD.
+ * Readers ignore properties they do not know, so new ones can be added within a version;
+ * {@link #CURRENT_VERSION} only changes for incompatible changes, which older readers refuse.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StreamEventEnvelope {
+
+    public static final int CURRENT_VERSION = 1;
+
+    @JsonProperty("v")
+    @Builder.Default
+    private int version = CURRENT_VERSION;
+
+    // messageType in the field-map format, e.g. appointment_updated
+    @JsonProperty("type")
+    private String type;
+
+    @JsonProperty("event")
+    private String eventType;
+
+    @JsonProperty("src")
+    private String source;
+
+    @JsonProperty("sys")
+    private String sourceSystem;
+
+    // Epoch milliseconds
+    @JsonProperty("ts")
+    private Long timestamp;
+
+    @JsonProperty("salon")
+    private Long salonId;
+
+    @JsonProperty("branch")
+    private Long branchId;
+
+    @JsonProperty("appt")
+    private Long appointmentId;
+
+    @JsonProperty("cust")
+    private Long customerId;
+
+    @JsonProperty("barber")
+    private Long barberId;
+
+    @JsonProperty("prio")
+    private String priority;
+
+    @JsonProperty("notify")
+    private Boolean requiresNotification;
+
+    // Flat top-level values such as customerName or appointmentTime, keyed in camelCase
+    @JsonProperty("attrs")
+    private Map<String, String> attributes;
+
+    @JsonProperty("meta")
+    private Map<String, Object> metadata;
+
+    @JsonProperty("data")
+    private Map<String, Object> data;
+
+    public String attribute(String name) {
+        return attributes != null ? attributes.get(name) : null;
+    }
+}
@@ -70,6 +70,10 @@ public class AppointmentRequest {
     @DecimalMin(value = "0.01", message = "Service price must be greater than 0")
     private BigDecimal servicePrice;
 
+    @Schema(description = "Slot hold ID from POST /api/v1/availability/holds. Optional. The hold is released once the appointment is created.",
+            example = "3f1c2b9e-6c1d-4f57-9a57-0c9b8f4d2e11")
+    private String holdId;
+
     @Schema(description = "Discount amount. Optional. Must be 0 or greater.", example = "5.00")
     @DecimalMin(value = "0.0", message = "Discount amount cannot be negative")
     private BigDecimal discountAmount;
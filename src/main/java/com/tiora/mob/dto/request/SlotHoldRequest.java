@@ -0,0 +1,37 @@
+package com.tiora.mob.dto.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Schema(description = "Request to hold a time slot while the customer checks out")
+public class SlotHoldRequest {
+
+    @Schema(description = "Barber ID", example = "12", required = true)
+    @NotNull(message = "Barber ID is required")
+    @JsonProperty("barber_id")
+    private Long barberId;
+
+    @Schema(description = "Salon ID", example = "1", required = true)
+    @NotNull(message = "Salon ID is required")
+    @JsonProperty("salon_id")
+    private Long salonId;
+
+    @Schema(description = "Selected service IDs; their total duration is the length of the hold", example = "[1, 2]", required = true)
+    @NotEmpty(message = "At least one service ID is required")
+    @JsonProperty("service_ids")
+    private List<Long> serviceIds;
+
+    @Schema(description = "Slot start", example = "2025-09-08T15:30:00", required = true)
+    @NotNull(message = "Start time is required")
+    @Future(message = "Start time must be in the future")
+    @JsonProperty("start_time")
+    private LocalDateTime startTime;
+}
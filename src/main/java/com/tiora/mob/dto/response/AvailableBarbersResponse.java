@@ -3,6 +3,7 @@ package com.tiora.mob.dto.response;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -13,6 +14,14 @@ public class AvailableBarbersResponse {
     @JsonProperty("available_barbers")
     private List<AvailableBarberResponse> availableBarbers;
     
+    @Schema(description = "Free slots across the branch, each with the barbers who can take it")
+    @JsonProperty("available_slots")
+    private List<SlotBarbers> availableSlots;
+
+    @Schema(description = "Total duration of selected services in minutes", example = "45")
+    @JsonProperty("total_duration_minutes")
+    private Integer totalDurationMinutes;
+
     @Schema(description = "Total number of barbers found", example = "3")
     @JsonProperty("total_barbers")
     private Integer totalBarbers;
@@ -33,11 +42,64 @@ public class AvailableBarbersResponse {
     @JsonProperty("success")
     private boolean success;
 
+    // Inner class for a slot and the barbers free for it
+    @Schema(description = "Time slot with the barbers available for it")
+    public static class SlotBarbers {
+
+        @Schema(description = "Start time", example = "09:00")
+        @JsonProperty("start_time")
+        private LocalTime startTime;
+
+        @Schema(description = "End time", example = "09:45")
+        @JsonProperty("end_time")
+        private LocalTime endTime;
+
+        @Schema(description = "IDs of barbers free for the whole slot")
+        @JsonProperty("barber_ids")
+        private List<Long> barberIds;
+
+        // Default constructor
+        public SlotBarbers() {}
+
+        // Constructor with parameters
+        public SlotBarbers(LocalTime startTime, LocalTime endTime, List<Long> barberIds) {
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.barberIds = barberIds;
+        }
+
+        // Getters and Setters
+        public LocalTime getStartTime() {
+            return startTime;
+        }
+
+        public void setStartTime(LocalTime startTime) {
+            this.startTime = startTime;
+        }
+
+        public LocalTime getEndTime() {
+            return endTime;
+        }
+
+        public void setEndTime(LocalTime endTime) {
+            this.endTime = endTime;
+        }
+
+        public List<Long> getBarberIds() {
+            return barberIds;
+        }
+
+        public void setBarberIds(List<Long> barberIds) {
+            this.barberIds = barberIds;
+        }
+    }
+
     // Default constructor
     public AvailableBarbersResponse() {
         this.success = true;
         this.message = "Available barbers retrieved successfully";
         this.availableBarbers = new ArrayList<>();
+        this.availableSlots = new ArrayList<>();
         this.totalBarbers = 0;
         this.totalServiceProviders = 0;
         this.totalEmployees = 0;
@@ -70,6 +132,22 @@ public class AvailableBarbersResponse {
         this.totalBarbers = availableBarbers != null ? availableBarbers.size() : 0;
     }
 
+    public List<SlotBarbers> getAvailableSlots() {
+        return availableSlots;
+    }
+
+    public void setAvailableSlots(List<SlotBarbers> availableSlots) {
+        this.availableSlots = availableSlots;
+    }
+
+    public Integer getTotalDurationMinutes() {
+        return totalDurationMinutes;
+    }
+
+    public void setTotalDurationMinutes(Integer totalDurationMinutes) {
+        this.totalDurationMinutes = totalDurationMinutes;
+    }
+
     public Integer getTotalBarbers() {
         return totalBarbers;
     }
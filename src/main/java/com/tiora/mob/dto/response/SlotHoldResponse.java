@@ -0,0 +1,33 @@
+package com.tiora.mob.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "A time slot held for a customer during checkout")
+public class SlotHoldResponse {
+
+    @Schema(description = "Hold ID, pass it as holdId when creating the appointment")
+    @JsonProperty("hold_id")
+    private String holdId;
+
+    @JsonProperty("barber_id")
+    private Long barberId;
+
+    @JsonProperty("start_time")
+    private LocalDateTime startTime;
+
+    @JsonProperty("end_time")
+    private LocalDateTime endTime;
+
+    @Schema(description = "When the hold lapses unless the appointment is created first")
+    @JsonProperty("expires_at")
+    private LocalDateTime expiresAt;
+}
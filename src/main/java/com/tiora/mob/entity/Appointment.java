@@ -141,6 +141,11 @@ public class Appointment {
     @Column(name = "appointment_number", unique = true, nullable = false, length = 20)
     private String appointmentNumber;
 
+    // Optimistic locking: concurrent updates from the web backend and the mobile API no longer overwrite each other
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id", nullable = false)
     private Customer customer;
@@ -297,7 +302,19 @@ public class Appointment {
     }
 
     public enum AppointmentStatus {
-    PENDING, SCHEDULED, CONFIRMED, IN_PROGRESS, COMPLETED, CANCELLED, NO_SHOW
+    PENDING, SCHEDULED, CONFIRMED, IN_PROGRESS, COMPLETED, CANCELLED, NO_SHOW;
+
+        /**
+         * Whether an appointment in this status may be moved to {@code next}. COMPLETED, CANCELLED and
+         * NO_SHOW are final, and a started appointment can only be completed or cancelled.
+         */
+        public boolean canMoveTo(AppointmentStatus next) {
+            return switch (this) {
+                case COMPLETED, CANCELLED, NO_SHOW -> false;
+                case IN_PROGRESS -> next == COMPLETED || next == CANCELLED;
+                default -> next != this;
+            };
+        }
     }
 
     public enum PaymentStatus {
@@ -0,0 +1,60 @@
+package com.tiora.mob.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stream message written in the same transaction as the appointment change it describes.
+ * The outbox relay XADDs undelivered rows to {@code streamKey} and stamps {@code deliveredAt}, or
+ * {@code deadLetteredAt} once it gives up on a row Redis keeps rejecting.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "appointment_outbox")
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "stream_key", nullable = false, length = 100)
+    private String streamKey;
+
+    @Column(name = "appointment_id")
+    private Long appointmentId;
+
+    // Event envelope as JSON
+    @Column(name = "fields", nullable = false, columnDefinition = "TEXT")
+    private String fields;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "delivered_at")
+    private LocalDateTime deliveredAt;
+
+    @Column(name = "dead_lettered_at")
+    private LocalDateTime deadLetteredAt;
+
+    @Column(name = "attempts", nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @PrePersist
+    protected void onCreate() {
+        if (this.createdAt == null) {
+            this.createdAt = LocalDateTime.now();
+        }
+    }
+}
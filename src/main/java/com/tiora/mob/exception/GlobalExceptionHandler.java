@@ -1,5 +1,7 @@
 package com.tiora.mob.exception;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -7,6 +9,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -35,6 +38,61 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
     }
 
+    @ExceptionHandler(SlotTakenException.class)
+    public ResponseEntity<Map<String, String>> handleSlotTakenException(SlotTakenException ex) {
+        logger.warn("SlotTakenException: {}", ex.getMessage());
+        Map<String, String> response = new HashMap<>();
+        response.put("error", ex.getMessage());
+        response.put("hint", "Please pick another time slot");
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(SlotHoldLimitException.class)
+    public ResponseEntity<Map<String, String>> handleSlotHoldLimitException(SlotHoldLimitException ex) {
+        logger.warn("SlotHoldLimitException: {}", ex.getMessage());
+        Map<String, String> response = new HashMap<>();
+        response.put("error", ex.getMessage());
+        response.put("hint", "Holds lapse on their own after a few minutes");
+        return new ResponseEntity<>(response, HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @ExceptionHandler(InvalidStatusTransitionException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidStatusTransitionException(InvalidStatusTransitionException ex) {
+        logger.warn("InvalidStatusTransitionException: {}", ex.getMessage());
+        Map<String, String> response = new HashMap<>();
+        response.put("error", ex.getMessage());
+        response.put("hint", "Reload the appointment to see its current status");
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(IdempotencyException.class)
+    public ResponseEntity<Map<String, String>> handleIdempotencyException(IdempotencyException ex) {
+        logger.warn("IdempotencyException: {}", ex.getMessage());
+        Map<String, String> response = new HashMap<>();
+        response.put("error", ex.getMessage());
+        response.put("hint", "Send a new Idempotency-Key for a different request");
+        return new ResponseEntity<>(response, ex.getStatus());
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        logger.warn("OptimisticLockingFailureException: {}", ex.getMessage());
+        Map<String, String> response = new HashMap<>();
+        response.put("error", "The record was changed by someone else");
+        response.put("hint", "Reload and try again");
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
+    // 23P01 = exclusion_violation, raised by the appointments no-overlap constraint (sql/appointments_no_overlap.sql)
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Map<String, String>> handleDataIntegrityViolationException(DataIntegrityViolationException ex) {
+        Throwable cause = ex.getMostSpecificCause();
+        if (cause instanceof SQLException && "23P01".equals(((SQLException) cause).getSQLState())) {
+            return handleSlotTakenException(new SlotTakenException("This time slot is already booked"));
+        }
+        return handleGeneralException(ex);
+    }
+
     @ExceptionHandler(IllegalStateException.class)
     public ResponseEntity<Map<String, String>> handleIllegalStateException(IllegalStateException ex) {
         logger.error("IllegalStateException: {}", ex.getMessage(), ex);
@@ -0,0 +1,20 @@
+package com.tiora.mob.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * An Idempotency-Key cannot be honored: the first request with it is still running (409),
+ * or the key was already used for a different request (422).
+ */
+public class IdempotencyException extends RuntimeException {
+    private final HttpStatus status;
+
+    public IdempotencyException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,11 @@
+package com.tiora.mob.exception;
+
+/**
+ * The appointment is no longer in a status the requested change applies to, e.g. it was cancelled
+ * by someone else while it was being completed.
+ */
+public class InvalidStatusTransitionException extends RuntimeException {
+    public InvalidStatusTransitionException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.tiora.mob.exception;
+
+/**
+ * The customer already holds as many time slots as one customer may hold at once.
+ */
+public class SlotHoldLimitException extends RuntimeException {
+    public SlotHoldLimitException(String message) {
+        super(message);
+    }
+}
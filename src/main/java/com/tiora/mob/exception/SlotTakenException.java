@@ -0,0 +1,10 @@
+package com.tiora.mob.exception;
+
+/**
+ * The requested time slot is already booked or held by someone else.
+ */
+public class SlotTakenException extends RuntimeException {
+    public SlotTakenException(String message) {
+        super(message);
+    }
+}
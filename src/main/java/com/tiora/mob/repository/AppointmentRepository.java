@@ -95,9 +95,70 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     List<Appointment> findConflictingAppointments(@Param("employee") Employee employee, @Param("startTime") java.time.LocalDateTime startTime, @Param("endTime") java.time.LocalDateTime endTime);
 
     // Find appointments by employeeId and date (stub for compatibility)
+    // Not index friendly: DATE() on the column forces a scan of the employee's history, prefer the range queries below
+    @Deprecated
     @Query("SELECT a FROM Appointment a WHERE a.employee.id = :employeeId AND FUNCTION('DATE', a.appointmentDate) = :date")
     List<Appointment> findByEmployeeIdAndDate(@Param("employeeId") Long employeeId, @Param("date") java.time.LocalDate date);
 
+    // Start/end/status of an employee's appointments in the half-open range [from, to), excluding one status
+    // Served by idx_appointments_employee_date_active (see sql/appointments_slot_index.sql)
+    @Query("SELECT a.employee.employeeId AS employeeId, a.appointmentDate AS appointmentDate, " +
+           "a.estimatedEndTime AS estimatedEndTime, a.status AS status, " +
+           "a.service.durationMinutes AS serviceDurationMinutes FROM Appointment a " +
+           "WHERE a.employee.employeeId = :employeeId " +
+           "AND a.appointmentDate >= :from AND a.appointmentDate < :to AND a.status <> :excludedStatus")
+    List<AppointmentSlotView> findByEmployeeIdAndAppointmentDateRange(@Param("employeeId") Long employeeId,
+                                                                      @Param("from") LocalDateTime from,
+                                                                      @Param("to") LocalDateTime to,
+                                                                      @Param("excludedStatus") AppointmentStatus excludedStatus);
+
+    // Start/end/status of several employees' appointments in the half-open range [from, to), excluding one status
+    @Query("SELECT a.employee.employeeId AS employeeId, a.appointmentDate AS appointmentDate, " +
+           "a.estimatedEndTime AS estimatedEndTime, a.status AS status, " +
+           "a.service.durationMinutes AS serviceDurationMinutes FROM Appointment a " +
+           "WHERE a.employee.employeeId IN :employeeIds " +
+           "AND a.appointmentDate >= :from AND a.appointmentDate < :to AND a.status <> :excludedStatus")
+    List<AppointmentSlotView> findByEmployeeIdInAndAppointmentDateRange(@Param("employeeIds") List<Long> employeeIds,
+                                                                        @Param("from") LocalDateTime from,
+                                                                        @Param("to") LocalDateTime to,
+                                                                        @Param("excludedStatus") AppointmentStatus excludedStatus);
+
+    // Appointments of an employee overlapping [startTime, endTime), excluding one status.
+    // earliestStart bounds the index range scan; no appointment starts more than a day before it ends.
+    @Query("SELECT a.employee.employeeId AS employeeId, a.appointmentDate AS appointmentDate, " +
+           "a.estimatedEndTime AS estimatedEndTime, a.status AS status, " +
+           "a.service.durationMinutes AS serviceDurationMinutes FROM Appointment a " +
+           "WHERE a.employee.employeeId = :employeeId " +
+           "AND a.appointmentDate >= :earliestStart AND a.appointmentDate < :endTime " +
+           "AND a.estimatedEndTime > :startTime AND a.status <> :excludedStatus")
+    List<AppointmentSlotView> findOverlappingSlots(@Param("employeeId") Long employeeId,
+                                                   @Param("earliestStart") LocalDateTime earliestStart,
+                                                   @Param("startTime") LocalDateTime startTime,
+                                                   @Param("endTime") LocalDateTime endTime,
+                                                   @Param("excludedStatus") AppointmentStatus excludedStatus);
+
+    // Transaction-scoped Postgres advisory lock on the barber: bookings for the same barber
+    // queue here until the holder commits, across every instance sharing the database
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(:employeeId)", nativeQuery = true)
+    Integer lockEmployeeSchedule(@Param("employeeId") Long employeeId);
+
+    // Top of the next block of appointment numbers, see AppointmentNumberAllocator
+    @Query(value = "SELECT nextval('appointment_number_seq')", nativeQuery = true)
+    Long nextAppointmentNumberBlock();
+
+    // One batch of the unpaid-appointment sweep: deletes up to batchSize expired PENDING rows and
+    // returns them. SKIP LOCKED leaves rows being paid right now to the next run.
+    @org.springframework.transaction.annotation.Transactional
+    @Query(value = "DELETE FROM appointments WHERE id IN (" +
+                   "SELECT id FROM appointments " +
+                   "WHERE customer_paid = 0 AND status = 'PENDING' AND created_at < :cutoff " +
+                   "ORDER BY id LIMIT :batchSize FOR UPDATE SKIP LOCKED) " +
+                   "RETURNING id AS \"id\", salon_id AS \"salonId\", employee_id AS \"employeeId\", " +
+                   "appointment_date AS \"appointmentDate\"",
+           nativeQuery = true)
+    List<ExpiredAppointmentView> deleteUnpaidBatch(@Param("cutoff") LocalDateTime cutoff,
+                                                   @Param("batchSize") int batchSize);
+
     // Find appointments by status with all related entities for activity display
     @Query("SELECT a FROM Appointment a " +
            "JOIN FETCH a.salon s " +
@@ -0,0 +1,34 @@
+package com.tiora.mob.repository;
+
+import com.tiora.mob.entity.Appointment;
+
+import java.time.LocalDateTime;
+
+/**
+ * Closed projection of the appointment columns needed to build a barber's occupancy.
+ * Selecting just these avoids loading Appointment entities and their lazy associations.
+ */
+public interface AppointmentSlotView {
+
+    Long getEmployeeId();
+
+    LocalDateTime getAppointmentDate();
+
+    LocalDateTime getEstimatedEndTime();
+
+    Appointment.AppointmentStatus getStatus();
+
+    Integer getServiceDurationMinutes();
+
+    /**
+     * End of the appointment. Rows saved without one block their service's duration from the start,
+     * the end Appointment itself computes; null when neither is known.
+     */
+    default LocalDateTime getEndTime() {
+        if (getEstimatedEndTime() != null) {
+            return getEstimatedEndTime();
+        }
+        Integer duration = getServiceDurationMinutes();
+        return getAppointmentDate() != null && duration != null ? getAppointmentDate().plusMinutes(duration) : null;
+    }
+}
@@ -10,4 +10,6 @@ import java.util.List;
 @Repository
 public interface BranchRepository extends JpaRepository<Branch, Long> {
     List<Branch> findBySalonType(SalonType salonType);
+
+    List<Branch> findByStatus(Branch.BranchStatus status);
 }
@@ -2,10 +2,43 @@ package com.tiora.mob.repository;
 
 import com.tiora.mob.entity.EmployeeLeave;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDate;
 import java.util.List;
 
 public interface EmployeeLeaveRepository extends JpaRepository<EmployeeLeave, Long> {
     java.util.List<EmployeeLeave> findByEmployee_EmployeeIdAndStartDate(Long employeeId, java.time.LocalDate startDate);
     boolean existsByEmployee_EmployeeIdAndStartDate(Long employeeId, java.time.LocalDate startDate);
     List<EmployeeLeave> findByEmployee_EmployeeId(Long employeeId);
+
+    // Find leaves with the given status that overlap the inclusive date range [from, to]
+    @Query("SELECT l FROM EmployeeLeave l WHERE l.employee.employeeId = :employeeId AND l.status = :status " +
+           "AND l.startDate <= :to AND l.endDate >= :from")
+    List<EmployeeLeave> findByEmployeeIdAndStatusOverlapping(@Param("employeeId") Long employeeId,
+                                                             @Param("status") EmployeeLeave.LeaveStatus status,
+                                                             @Param("from") LocalDate from,
+                                                             @Param("to") LocalDate to);
+
+    // Same as above for several employees at once
+    @Query("SELECT l FROM EmployeeLeave l WHERE l.employee.employeeId IN :employeeIds AND l.status = :status " +
+           "AND l.startDate <= :to AND l.endDate >= :from")
+    List<EmployeeLeave> findByEmployeeIdInAndStatusOverlapping(@Param("employeeIds") List<Long> employeeIds,
+                                                               @Param("status") EmployeeLeave.LeaveStatus status,
+                                                               @Param("from") LocalDate from,
+                                                               @Param("to") LocalDate to);
+
+    // Leaves with the given status that have not ended before the given date
+    @Query("SELECT l FROM EmployeeLeave l WHERE l.employee.employeeId = :employeeId AND l.status = :status " +
+           "AND l.endDate >= :from")
+    List<EmployeeLeave> findByEmployeeIdAndStatusEndingFrom(@Param("employeeId") Long employeeId,
+                                                            @Param("status") EmployeeLeave.LeaveStatus status,
+                                                            @Param("from") LocalDate from);
+
+    // Same as above for several employees at once
+    @Query("SELECT l FROM EmployeeLeave l WHERE l.employee.employeeId IN :employeeIds AND l.status = :status " +
+           "AND l.endDate >= :from")
+    List<EmployeeLeave> findByEmployeeIdInAndStatusEndingFrom(@Param("employeeIds") List<Long> employeeIds,
+                                                              @Param("status") EmployeeLeave.LeaveStatus status,
+                                                              @Param("from") LocalDate from);
 }
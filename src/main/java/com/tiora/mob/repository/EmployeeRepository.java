@@ -28,6 +28,10 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
         // Find available barbers by serviceId in specialization_services (JSON) and servesGender
                         @Query(value = "SELECT * FROM employees WHERE status = 'ACTIVE' AND role = 'BARBER' AND serves_gender = :gender AND branch_id = :branchId AND specializations @> CAST(:serviceJson AS jsonb)", nativeQuery = true)
                         List<Employee> findAvailableBarbersByServiceAndGenderAndBranch(@Param("serviceJson") String serviceJson, @Param("gender") String gender, @Param("branchId") Long branchId);
+    // Ids of a branch's employees with the given role and status
+    @Query("SELECT e.employeeId FROM Employee e WHERE e.branch.branchId = :branchId AND e.role = :role AND e.status = :status")
+    List<Long> findEmployeeIdsByBranchAndRoleAndStatus(@Param("branchId") Long branchId, @Param("role") Role role, @Param("status") EmployeeStatus status);
+
     // Find by salon
     List<Employee> findBySalonOrderByFirstName(Salon salon);
 
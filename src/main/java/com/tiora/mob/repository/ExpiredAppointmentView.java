@@ -0,0 +1,18 @@
+package com.tiora.mob.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Columns returned for each row removed by the unpaid-appointment sweep,
+ * enough to invalidate the barber's cached availability and notify the web backend.
+ */
+public interface ExpiredAppointmentView {
+
+    Long getId();
+
+    Long getSalonId();
+
+    Long getEmployeeId();
+
+    LocalDateTime getAppointmentDate();
+}
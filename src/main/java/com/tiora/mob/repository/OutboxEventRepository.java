@@ -0,0 +1,45 @@
+package com.tiora.mob.repository;
+
+import com.tiora.mob.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Oldest pending rows first; rows locked by another relay instance are skipped, not waited for
+    @Query(value = "SELECT * FROM appointment_outbox WHERE delivered_at IS NULL AND dead_lettered_at IS NULL " +
+                   "ORDER BY id LIMIT :batchSize FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<OutboxEvent> lockUndeliveredBatch(@Param("batchSize") int batchSize);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent o SET o.deliveredAt = :deliveredAt, o.attempts = o.attempts + 1, o.lastError = null WHERE o.id IN :ids")
+    int markDelivered(@Param("ids") List<Long> ids, @Param("deliveredAt") LocalDateTime deliveredAt);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent o SET o.attempts = o.attempts + 1, o.lastError = :error WHERE o.id IN :ids")
+    int markFailed(@Param("ids") List<Long> ids, @Param("error") String error);
+
+    // Gives up on the rows: kept with their last error for inspection, never relayed or cleaned up
+    @Modifying
+    @Query("UPDATE OutboxEvent o SET o.deadLetteredAt = :at, o.attempts = o.attempts + 1, o.lastError = :error WHERE o.id IN :ids")
+    int markDeadLettered(@Param("ids") List<Long> ids, @Param("error") String error, @Param("at") LocalDateTime at);
+
+    long countByDeliveredAtIsNullAndDeadLetteredAtIsNull();
+
+    long countByDeadLetteredAtIsNotNull();
+
+    @Query("SELECT MIN(o.createdAt) FROM OutboxEvent o WHERE o.deliveredAt IS NULL AND o.deadLetteredAt IS NULL")
+    LocalDateTime findOldestUndeliveredCreatedAt();
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent o WHERE o.deliveredAt < :cutoff")
+    int deleteDeliveredBefore(@Param("cutoff") LocalDateTime cutoff);
+}
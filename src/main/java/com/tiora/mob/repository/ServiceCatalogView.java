@@ -0,0 +1,23 @@
+package com.tiora.mob.repository;
+
+import com.tiora.mob.entity.Service;
+
+import java.math.BigDecimal;
+
+/**
+ * Closed projection of the service columns kept in the in-memory service catalog.
+ */
+public interface ServiceCatalogView {
+
+    Long getId();
+
+    String getName();
+
+    Integer getDurationMinutes();
+
+    BigDecimal getPrice();
+
+    Service.GenderAvailability getGenderAvailability();
+
+    Service.ServiceStatus getStatus();
+}
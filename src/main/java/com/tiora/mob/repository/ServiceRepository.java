@@ -20,4 +20,9 @@ public interface ServiceRepository extends JpaRepository<Service, Long> {
 	@Query("SELECT s FROM Service s JOIN FETCH s.salon")
 	List<Service> findAllWithSalon();
 
+	// Every service of a salon in one round trip, for the service catalog
+	@Query("SELECT s.id AS id, s.name AS name, s.durationMinutes AS durationMinutes, s.price AS price, " +
+	       "s.genderAvailability AS genderAvailability, s.status AS status FROM Service s WHERE s.salon.id = :salonId")
+	List<ServiceCatalogView> findCatalogBySalonId(@Param("salonId") Long salonId);
+
 }
\ No newline at end of file
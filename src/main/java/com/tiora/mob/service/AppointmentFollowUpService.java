@@ -0,0 +1,173 @@
+package com.tiora.mob.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tiora.mob.entity.Customer;
+import com.tiora.mob.repository.CustomerRepository;
+import com.tiora.mob.util.OptimisticRetry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Side effects of an appointment status change that the caller does not wait for:
+ * the customer's latest-visit record and the customer notification.
+ * They run after the status change commits, on a small bounded pool. Work is coalesced per customer:
+ * while a customer's follow-up is still queued, further events for that customer join it, so a burst
+ * of completions becomes one customer update. When the queue is full the committing thread runs the
+ * work itself, which slows callers down instead of dropping follow-ups.
+ */
+@Service
+public class AppointmentFollowUpService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentFollowUpService.class);
+    private static final TypeReference<Map<Long, String>> VISITS_TYPE = new TypeReference<>() {};
+
+    private final CustomerRepository customerRepository;
+    private final MobileAppointmentStreamPublisher streamPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ThreadPoolExecutor executor;
+    private final Map<Long, CustomerFollowUp> pending = new ConcurrentHashMap<>();
+    private final Timer queueLatency;
+    private final Timer handlerLatency;
+
+    public AppointmentFollowUpService(CustomerRepository customerRepository,
+                                      MobileAppointmentStreamPublisher streamPublisher,
+                                      TransactionTemplate transactionTemplate,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${app.appointment-followup.threads:2}") int threads,
+                                      @Value("${app.appointment-followup.queue-capacity:1000}") int queueCapacity) {
+        this.customerRepository = customerRepository;
+        this.streamPublisher = streamPublisher;
+        // Follow-ups may run on the committing thread (queue full), so they always need their own transaction
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("appointment-followup-"),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        Gauge.builder("appointment.followup.queue", executor, e -> e.getQueue().size())
+            .description("Follow-up tasks waiting for a thread")
+            .register(meterRegistry);
+        Gauge.builder("appointment.followup.pending.customers", pending, Map::size)
+            .description("Customers with follow-up work not yet handled")
+            .register(meterRegistry);
+        this.queueLatency = Timer.builder("appointment.followup.delay")
+            .description("Time from the status change to its follow-up starting")
+            .register(meterRegistry);
+        this.handlerLatency = Timer.builder("appointment.followup.duration")
+            .description("Time spent handling one customer's coalesced follow-ups")
+            .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onStatusChanged(AppointmentStatusChangedEvent event) {
+        if (event.getCustomerId() == null) {
+            return;
+        }
+        boolean[] schedule = {false};
+        pending.compute(event.getCustomerId(), (customerId, followUp) -> {
+            if (followUp == null) {
+                followUp = new CustomerFollowUp();
+                schedule[0] = true;
+            }
+            followUp.add(event);
+            return followUp;
+        });
+        if (schedule[0]) {
+            executor.execute(() -> handle(event.getCustomerId()));
+        }
+    }
+
+    private void handle(Long customerId) {
+        CustomerFollowUp followUp = pending.remove(customerId);
+        if (followUp == null) {
+            return;
+        }
+        queueLatency.record(System.nanoTime() - followUp.oldestNanos, TimeUnit.NANOSECONDS);
+        handlerLatency.record(() -> {
+            if (!followUp.visits.isEmpty()) {
+                try {
+                    OptimisticRetry.run(() -> transactionTemplate.executeWithoutResult(status -> recordVisits(customerId, followUp.visits)));
+                } catch (Exception e) {
+                    logger.error("Failed to record visits for customer {}: {}", customerId, e.getMessage(), e);
+                }
+            }
+            for (AppointmentStatusChangedEvent event : followUp.notifications) {
+                streamPublisher.publishCustomerNotification(customerId, event.getAppointmentId(),
+                    event.getStatus(), event.getCustomerMessage());
+            }
+        });
+    }
+
+    private void recordVisits(Long customerId, Map<Long, LocalDate> visits) {
+        Customer customer = customerRepository.findById(customerId).orElse(null);
+        if (customer == null) {
+            return;
+        }
+        Map<Long, String> visitMap = new HashMap<>();
+        try {
+            if (customer.getLatestVisitJson() != null && !customer.getLatestVisitJson().isEmpty()) {
+                visitMap = objectMapper.readValue(customer.getLatestVisitJson(), VISITS_TYPE);
+            }
+            for (Map.Entry<Long, LocalDate> visit : visits.entrySet()) {
+                visitMap.put(visit.getKey(), visit.getValue().toString());
+            }
+            customer.setLatestVisitJson(objectMapper.writeValueAsString(visitMap));
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            logger.error("Unreadable latest visits for customer {}: {}", customerId, e.getMessage());
+            return;
+        }
+        customerRepository.save(customer);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Mutated only inside pending.compute, read after pending.remove
+    private static final class CustomerFollowUp {
+        private final Map<Long, LocalDate> visits = new HashMap<>();
+        private final List<AppointmentStatusChangedEvent> notifications = new ArrayList<>();
+        private long oldestNanos = Long.MAX_VALUE;
+
+        private void add(AppointmentStatusChangedEvent event) {
+            oldestNanos = Math.min(oldestNanos, event.getPublishedAtNanos());
+            if ("COMPLETED".equals(event.getStatus()) && event.getBranchId() != null) {
+                visits.merge(event.getBranchId(), event.getChangedOn(), (a, b) -> a.isAfter(b) ? a : b);
+            }
+            if (event.getCustomerMessage() != null) {
+                notifications.add(event);
+            }
+        }
+    }
+}
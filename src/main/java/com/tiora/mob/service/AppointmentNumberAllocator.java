@@ -0,0 +1,55 @@
+package com.tiora.mob.service;
+
+import com.tiora.mob.repository.AppointmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Allocates appointment numbers before insert, so a booking is a single INSERT.
+ * Numbers come from {@code appointment_number_seq} (sql/appointment_number_seq.sql) using a pooled
+ * scheme: one nextval reserves a block of {@link #ALLOCATION_SIZE} numbers for this instance, and
+ * numbers are handed out from memory until the block is used up. Numbers are unique across
+ * instances but not gap-free; a restart skips the rest of the current block.
+ */
+@Service
+public class AppointmentNumberAllocator {
+
+    // Must match INCREMENT BY of appointment_number_seq
+    static final int ALLOCATION_SIZE = 50;
+
+    private static final DateTimeFormatter DATE_PREFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    // Not synchronized: a virtual thread waiting on nextval inside a monitor would pin its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private long next;
+    private long blockEnd;
+
+    /**
+     * Next appointment number for an appointment on the given date, e.g. {@code APT-20250906-0123}.
+     */
+    public String nextNumber(LocalDateTime appointmentDate) {
+        return String.format("APT-%s-%04d", appointmentDate.format(DATE_PREFIX), nextValue());
+    }
+
+    long nextValue() {
+        lock.lock();
+        try {
+            if (next >= blockEnd) {
+                // nextval returns the top of the reserved block
+                long hi = appointmentRepository.nextAppointmentNumberBlock();
+                next = hi - ALLOCATION_SIZE + 1;
+                blockEnd = hi + 1;
+            }
+            return next++;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.tiora.mob.service;
+
+import com.tiora.mob.entity.OutboxEvent;
+import com.tiora.mob.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the appointment outbox into Redis Streams.
+ * Each run locks the oldest undelivered rows (FOR UPDATE SKIP LOCKED, so instances share the work),
+ * XADDs them with {@link MobileAppointmentStreamPublisher#publishBatch} (trimmed per
+ * {@link StreamRetentionService}), and marks the written ones delivered in the same transaction. Rows Redis
+ * rejected, or the whole batch when the pipeline fails, are left for the next run, so delivery is at least once.
+ * <p>
+ * Rows of one appointment are written in id order, one per pipelined round (a batch usually needs one to three
+ * rounds): when a row fails, the appointment's later rows in the batch are held back with it, so they cannot
+ * overtake it. Consumers still see repeats, and two relay instances locking neighbouring batches can still
+ * interleave an appointment's rows.
+ * <p>
+ * A row Redis has rejected {@code app.outbox.relay.max-attempts} times is dead-lettered: it keeps its last
+ * error and {@code dead_lettered_at}, is never relayed again, and the appointment's later rows go out without it.
+ * Failed round trips (Redis unreachable) count as attempts but never dead-letter a row on their own.
+ * Exposes {@code appointment.outbox.backlog} (pending rows), {@code appointment.outbox.lag} (age of the oldest
+ * pending row, seconds) and {@code appointment.outbox.dead_lettered}.
+ */
+@Service
+public class AppointmentOutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentOutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final MobileAppointmentStreamPublisher streamPublisher;
+    private final StreamEventCodec streamEventCodec;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter delivered;
+    private final Counter failures;
+    private final Counter deadLettered;
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    @Value("${app.outbox.relay.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.outbox.relay.max-attempts:20}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.retention-hours:24}")
+    private long retentionHours;
+
+    public AppointmentOutboxRelay(OutboxEventRepository outboxEventRepository,
+                                  MobileAppointmentStreamPublisher streamPublisher,
+                                  StreamEventCodec streamEventCodec,
+                                  TransactionTemplate transactionTemplate,
+                                  MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.streamPublisher = streamPublisher;
+        this.streamEventCodec = streamEventCodec;
+        this.transactionTemplate = transactionTemplate;
+        this.delivered = Counter.builder("appointment.outbox.delivered")
+            .description("Outbox events written to Redis Streams")
+            .register(meterRegistry);
+        this.failures = Counter.builder("appointment.outbox.failures")
+            .description("Outbox events that could not be written to Redis")
+            .register(meterRegistry);
+        this.deadLettered = Counter.builder("appointment.outbox.dead_lettered")
+            .description("Outbox events given up on after being rejected by Redis too often")
+            .register(meterRegistry);
+        Gauge.builder("appointment.outbox.backlog", backlog, AtomicLong::get)
+            .description("Outbox events waiting to be delivered")
+            .register(meterRegistry);
+        Gauge.builder("appointment.outbox.lag", lagSeconds, AtomicLong::get)
+            .description("Age of the oldest undelivered outbox event")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.relay.interval-ms:500}")
+    public void relay() {
+        int sent;
+        do {
+            Integer batch = transactionTemplate.execute(status -> relayBatch());
+            sent = batch != null ? batch : 0;
+        } while (sent == batchSize);
+        refreshGauges();
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> events = outboxEventRepository.lockUndeliveredBatch(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        // Delivered, or dropped as unreadable
+        List<Long> done = new ArrayList<>(events.size());
+        List<OutboxEvent> rows = new ArrayList<>(events.size());
+        List<MobileAppointmentStreamPublisher.BatchEntry> batch = new ArrayList<>(events.size());
+        // Per appointment (rows without one stand alone), indexes into rows/batch in id order
+        Map<Object, Deque<Integer>> chains = new LinkedHashMap<>();
+        for (OutboxEvent event : events) {
+            try {
+                batch.add(MobileAppointmentStreamPublisher.BatchEntry.of(event.getStreamKey(),
+                    streamEventCodec.fromJson(event.getFields())));
+                rows.add(event);
+                Object chain = event.getAppointmentId() != null ? event.getAppointmentId() : "row:" + event.getId();
+                chains.computeIfAbsent(chain, key -> new ArrayDeque<>()).add(rows.size() - 1);
+            } catch (Exception e) {
+                // Retrying an undecodable row can never succeed; it is marked delivered with the rest of the batch
+                logger.error("Dropping unreadable outbox event {}: {}", event.getId(), e.getMessage());
+                done.add(event.getId());
+            }
+        }
+
+        Map<String, List<Long>> failedByError = new LinkedHashMap<>();
+        Map<String, List<Long>> deadByError = new LinkedHashMap<>();
+        int published = 0;
+        int failed = 0;
+        int heldBack = 0;
+        while (!chains.isEmpty()) {
+            // The oldest remaining row of every appointment
+            List<Deque<Integer>> round = new ArrayList<>(chains.values());
+            List<MobileAppointmentStreamPublisher.BatchEntry> entries = new ArrayList<>(round.size());
+            for (Deque<Integer> chain : round) {
+                entries.add(batch.get(chain.peekFirst()));
+            }
+            List<MobileAppointmentStreamPublisher.BatchResult> results = streamPublisher.publishBatch(entries);
+            for (int i = 0; i < round.size(); i++) {
+                Deque<Integer> chain = round.get(i);
+                OutboxEvent row = rows.get(chain.pollFirst());
+                MobileAppointmentStreamPublisher.BatchResult result = results.get(i);
+                if (result.isPublished()) {
+                    done.add(row.getId());
+                    published++;
+                } else if (result.isRejected() && row.getAttempts() + 1 >= maxAttempts) {
+                    // Given up on; the appointment's next row takes its place in the following round
+                    deadByError.computeIfAbsent(truncate(result.getError().getMessage()), error -> new ArrayList<>()).add(row.getId());
+                } else {
+                    failedByError.computeIfAbsent(truncate(result.getError().getMessage()), error -> new ArrayList<>()).add(row.getId());
+                    failed++;
+                    // Later rows of this appointment wait for the next run, behind the failed one
+                    heldBack += chain.size();
+                    chain.clear();
+                }
+            }
+            chains.values().removeIf(Deque::isEmpty);
+        }
+        if (!failedByError.isEmpty()) {
+            failures.increment(failed);
+            logger.warn("Outbox relay could not publish {} of {} events ({} held back behind them), will retry: {}",
+                failed, events.size(), heldBack, failedByError.keySet());
+            failedByError.forEach((error, failedIds) -> outboxEventRepository.markFailed(failedIds, error));
+        }
+        if (!deadByError.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            deadByError.forEach((error, deadIds) -> {
+                logger.error("Dead-lettering outbox events {} after {} attempts: {}", deadIds, maxAttempts, error);
+                outboxEventRepository.markDeadLettered(deadIds, error, now);
+                deadLettered.increment(deadIds.size());
+            });
+        }
+        if (!done.isEmpty()) {
+            outboxEventRepository.markDelivered(done, LocalDateTime.now());
+        }
+        delivered.increment(published);
+        // Short of a full batch after failures, so relay() waits for the next run instead of retrying at once
+        return done.size() + deadByError.values().stream().mapToInt(List::size).sum();
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > 500 ? error.substring(0, 500) : error;
+    }
+
+    private void refreshGauges() {
+        try {
+            backlog.set(outboxEventRepository.countByDeliveredAtIsNullAndDeadLetteredAtIsNull());
+            LocalDateTime oldest = outboxEventRepository.findOldestUndeliveredCreatedAt();
+            lagSeconds.set(oldest != null ? Math.max(0, Duration.between(oldest, LocalDateTime.now()).getSeconds()) : 0);
+        } catch (Exception e) {
+            logger.warn("Could not refresh outbox gauges: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${app.outbox.cleanup-cron:0 15 * * * *}")
+    public void deleteDelivered() {
+        Integer removed = transactionTemplate.execute(status ->
+            outboxEventRepository.deleteDeliveredBefore(LocalDateTime.now().minusHours(retentionHours)));
+        if (removed != null && removed > 0) {
+            logger.info("Deleted {} delivered outbox events", removed);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.tiora.mob.service;
+
+import com.tiora.mob.dto.StreamEventEnvelope;
+import com.tiora.mob.entity.OutboxEvent;
+import com.tiora.mob.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+/**
+ * Records appointment stream events in the outbox table as part of the caller's transaction.
+ * Events are built exactly as {@link MobileAppointmentStreamPublisher} builds them and stored as
+ * envelope JSON; {@link AppointmentOutboxRelay} encodes them in the configured stream format on delivery.
+ */
+@Service
+public class AppointmentOutboxService {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private MobileAppointmentStreamPublisher streamPublisher;
+
+    @Autowired
+    private StreamEventCodec streamEventCodec;
+
+    @Value("${salon.redis.streams.appointment-stream}")
+    private String appointmentStreamKey;
+
+    @Value("${salon.redis.streams.barber-stream}")
+    private String barberStreamKey;
+
+    /**
+     * Created events go to the web backend stream and to the barber stream.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appointmentCreated(Long salonId, Long branchId, Long appointmentId,
+                                   Long customerId, Long barberId, Map<String, Object> appointmentData) {
+        StreamEventEnvelope event = streamPublisher.buildAppointmentCreatedEvent(salonId, branchId, appointmentId,
+            customerId, barberId, appointmentData);
+        enqueue(appointmentStreamKey, appointmentId, event.toBuilder().source("WEB").build());
+        enqueue(barberStreamKey, appointmentId, event.toBuilder().source("barber_mobile").build());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appointmentUpdated(Long salonId, Long appointmentId, String oldStatus, String newStatus) {
+        enqueue(appointmentStreamKey, appointmentId,
+            streamPublisher.buildAppointmentUpdatedEvent(salonId, appointmentId, oldStatus, newStatus));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appointmentCancelled(Long salonId, Long appointmentId, String cancellationReason) {
+        enqueue(appointmentStreamKey, appointmentId,
+            streamPublisher.buildAppointmentCancelledEvent(salonId, appointmentId, cancellationReason));
+    }
+
+    private void enqueue(String streamKey, Long appointmentId, StreamEventEnvelope event) {
+        outboxEventRepository.save(OutboxEvent.builder()
+            .streamKey(streamKey)
+            .appointmentId(appointmentId)
+            .fields(streamEventCodec.toJson(event))
+            .build());
+    }
+}
@@ -9,8 +9,10 @@ import com.tiora.mob.dto.response.AppointmentResponse;
 import com.tiora.mob.dto.response.AppointmentActivityResponse;
 import com.tiora.mob.entity.*;
 import com.tiora.mob.exception.ResourceNotFoundException;
+import com.tiora.mob.exception.SlotTakenException;
 import com.tiora.mob.exception.UnauthorizedException;
 import com.tiora.mob.repository.*;
+import com.tiora.mob.util.OptimisticRetry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,7 +23,6 @@ import java.util.Map;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -31,12 +32,51 @@ import java.util.stream.Collectors;
 public class AppointmentService {
     @org.springframework.beans.factory.annotation.Value("${app.unpaid-appointment-cancel-minutes:5}")
     private int unpaidAppointmentCancelMinutes;
+    @org.springframework.beans.factory.annotation.Value("${app.unpaid-appointment-sweep.batch-size:200}")
+    private int unpaidSweepBatchSize;
+
+    /**
+     * Removes unpaid PENDING appointments older than the payment window.
+     * Runs on one instance at a time (Redis lease) and deletes in batches of one
+     * DELETE ... RETURNING each, committing per batch; every removed appointment frees its
+     * barber's cached availability and is announced to the web backend as cancelled.
+     * The lease only keeps other instances from repeating the work: correctness rests on
+     * FOR UPDATE SKIP LOCKED in the DELETE, so two overlapping sweeps delete disjoint rows and
+     * each row is announced once, by the sweep whose DELETE returned it.
+     */
     @org.springframework.scheduling.annotation.Scheduled(fixedRate = 60000)
     public void cancelUnpaidAppointments() {
-        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(unpaidAppointmentCancelMinutes);
-    List<Appointment> unpaidAppointments = appointmentRepository.findByCustomerPaidAndStatusAndCreatedAtBefore(0, Appointment.AppointmentStatus.PENDING, cutoff);
-        for (Appointment appointment : unpaidAppointments) {
-            appointmentRepository.delete(appointment);
+        SchedulerLeaseService.Lease lease = schedulerLeaseService.tryAcquire("unpaid-appointment-sweep", java.time.Duration.ofSeconds(50));
+        if (lease == null) {
+            return;
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusMinutes(unpaidAppointmentCancelMinutes);
+            int removed = 0;
+            List<ExpiredAppointmentView> batch;
+            // Stop as soon as the lease is lost, another instance has taken over
+            while (schedulerLeaseService.isHeld(lease)) {
+                batch = transactionTemplate.execute(status -> {
+                    List<ExpiredAppointmentView> deleted = appointmentRepository.deleteUnpaidBatch(cutoff, unpaidSweepBatchSize);
+                    for (ExpiredAppointmentView expired : deleted) {
+                        java.time.LocalDate day = expired.getAppointmentDate().toLocalDate();
+                        timeSlotCacheService.evictAfterCommit(expired.getEmployeeId(), day);
+                        availabilityMaskService.invalidateAfterCommit(expired.getEmployeeId(), day);
+                        appointmentOutboxService.appointmentCancelled(expired.getSalonId(), expired.getId(),
+                            "Payment not received within " + unpaidAppointmentCancelMinutes + " minutes");
+                    }
+                    return deleted;
+                });
+                removed += batch.size();
+                if (batch.size() < unpaidSweepBatchSize) {
+                    break;
+                }
+            }
+            if (removed > 0) {
+                logger.info("Removed {} unpaid appointments created before {} (lease generation {})", removed, cutoff, lease.getGeneration());
+            }
+        } finally {
+            schedulerLeaseService.release(lease);
         }
     }
     @Transactional
@@ -58,15 +98,25 @@ public class AppointmentService {
     }
     // ...existing code...
 
-    @org.springframework.beans.factory.annotation.Autowired
-    private CustomerRepository customerRepository;
 
-    @Transactional
+    /**
+     * Retried as a whole on an optimistic-locking conflict with a concurrent update of the appointment.
+     */
     public void updateAppointmentStatus(String token, com.tiora.mob.dto.request.AppointmentStatusUpdateRequest request) {
+        OptimisticRetry.run(() -> transactionTemplate.executeWithoutResult(status -> applyAppointmentStatus(token, request)));
+    }
+
+    private void applyAppointmentStatus(String token, com.tiora.mob.dto.request.AppointmentStatusUpdateRequest request) {
         Appointment appointment = appointmentRepository.findById(request.getAppointmentId())
             .orElseThrow(() -> new com.tiora.mob.exception.ResourceNotFoundException("Appointment not found"));
         Appointment.AppointmentStatus newStatus = Appointment.AppointmentStatus.valueOf(request.getStatus());
+        Appointment.AppointmentStatus oldStatus = appointment.getStatus();
+        requireTransition(appointment, newStatus);
         appointment.setStatus(newStatus);
+        // Only a move into or out of CANCELLED frees or takes the slot
+        if ((oldStatus == Appointment.AppointmentStatus.CANCELLED) != (newStatus == Appointment.AppointmentStatus.CANCELLED)) {
+            evictSlotCache(appointment);
+        }
 
         if (newStatus == Appointment.AppointmentStatus.CANCELLED) {
             Long employeeId = appointment.getEmployee() != null ? appointment.getEmployee().getEmployeeId() : null;
@@ -76,16 +126,12 @@ public class AppointmentService {
             appointment.setCancellationReason(reason);
             appointment.setCancelledBy(String.valueOf(employeeId));
             appointment.setCancelledAt(java.time.LocalDateTime.now());
-            // Publish customer notification for CANCELLED
-            streamPublisher.publishCustomerNotification(
-                appointment.getCustomer().getId(),
-                appointment.getId(),
-                "CANCELLED",
-                reason
-            );
+            // Customer notification for CANCELLED is sent after commit
+            eventPublisher.publishEvent(new AppointmentStatusChangedEvent(
+                appointment.getId(), appointment.getCustomer().getId(), null, "CANCELLED", reason));
                 // Publish salon notification for CANCELLED
                 if (appointment.getSalon() != null) {
-                    streamPublisher.publishAppointmentUpdated(
+                    appointmentOutboxService.appointmentUpdated(
                         appointment.getSalon().getId(),
                         appointment.getId(),
                         request.getStatus(),
@@ -97,34 +143,14 @@ public class AppointmentService {
         appointmentRepository.save(appointment);
 
         if (newStatus == Appointment.AppointmentStatus.COMPLETED) {
-            Customer customer = appointment.getCustomer();
-            String latestVisitJson = customer.getLatestVisitJson();
-            java.util.Map<Long, String> visitMap = new java.util.HashMap<>();
-            com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-            java.time.LocalDate today = java.time.LocalDate.now();
+            // Latest-visit update and customer notification run after commit, see AppointmentFollowUpService
             Long branchId = appointment.getBranch() != null ? appointment.getBranch().getBranchId() : null;
-            try {
-                if (latestVisitJson != null && !latestVisitJson.isEmpty()) {
-                    visitMap = mapper.readValue(latestVisitJson, new com.fasterxml.jackson.core.type.TypeReference<java.util.Map<Long, String>>() {});
-                }
-                if (branchId != null) {
-                    visitMap.put(branchId, today.toString());
-                    customer.setLatestVisitJson(mapper.writeValueAsString(visitMap));
-                }
-            } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
-                // log error or handle as needed
-            }
-            customerRepository.save(customer);
-            // Publish customer notification for COMPLETED
-            streamPublisher.publishCustomerNotification(
-                appointment.getCustomer().getId(),
-                appointment.getId(),
-                "COMPLETED",
-                "Your appointment has been completed."
-            );
+            eventPublisher.publishEvent(new AppointmentStatusChangedEvent(
+                appointment.getId(), appointment.getCustomer().getId(), branchId,
+                "COMPLETED", "Your appointment has been completed."));
                 // Publish salon notification for COMPLETED
                 if (appointment.getSalon() != null) {
-                    streamPublisher.publishAppointmentUpdated(
+                    appointmentOutboxService.appointmentUpdated(
                         appointment.getSalon().getId(),
                         appointment.getId(),
                         request.getStatus(),
@@ -205,6 +231,33 @@ public class AppointmentService {
     @Autowired
     private MobileAppointmentStreamPublisher streamPublisher;
 
+    @Autowired
+    private TimeSlotCacheService timeSlotCacheService;
+
+    @Autowired
+    private ServiceCatalogService serviceCatalogService;
+
+    @Autowired
+    private SlotHoldService slotHoldService;
+
+    @Autowired
+    private AvailabilityMaskService availabilityMaskService;
+
+    @Autowired
+    private AppointmentNumberAllocator appointmentNumberAllocator;
+
+    @Autowired
+    private SchedulerLeaseService schedulerLeaseService;
+
+    @Autowired
+    private AppointmentOutboxService appointmentOutboxService;
+
+    @Autowired
+    private org.springframework.context.ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private org.springframework.transaction.support.TransactionTemplate transactionTemplate;
+
     @Transactional
     public AppointmentResponse createAppointment(String token, AppointmentRequest appointmentRequest) {
         logger.info("Creating appointment: serviceIds={}, employeeId={}, salonId={}",
@@ -214,16 +267,15 @@ public class AppointmentService {
         // Find customer by ID (customerPhone is no longer supported)
         Customer customer = customerService.getCustomerById(appointmentRequest.getCustomerId());
 
-        // Validate and get services
-        List<Service> services = new ArrayList<>();
-        BigDecimal totalServicePrice = BigDecimal.ZERO;
-
-        for (Long serviceId : appointmentRequest.getServiceIds()) {
-            Service service = serviceRepository.findById(serviceId)
-                    .orElseThrow(() -> new RuntimeException("Service not found with ID: " + serviceId));
-            services.add(service);
-            totalServicePrice = totalServicePrice.add(service.getPrice());
+        // Validate and get services from the salon's catalog (no query per service)
+        List<ServiceCatalogService.CatalogEntry> services = serviceCatalogService.resolve(
+                appointmentRequest.getSalonId(), appointmentRequest.getServiceIds());
+        for (ServiceCatalogService.CatalogEntry service : services) {
+            if (!service.isActive()) {
+                throw new RuntimeException("Service is not available: " + service.getName());
+            }
         }
+        BigDecimal totalServicePrice = ServiceCatalogService.totalPrice(services);
 
         Employee employee = employeeRepository.findById(appointmentRequest.getEmployeeId())
                 .orElseThrow(() -> new RuntimeException("Employee not found"));
@@ -231,23 +283,41 @@ public class AppointmentService {
         Salon salon = salonRepository.findById(appointmentRequest.getSalonId())
                 .orElseThrow(() -> new RuntimeException("Salon not found"));
 
+        // Serialize bookings of this barber until commit, so the conflict check below
+        // cannot be passed by two concurrent requests for the same slot
+        appointmentRepository.lockEmployeeSchedule(employee.getEmployeeId());
+
+        // The end time is optional in the request; without one the booking lasts as long as its services.
+        // It is stored either way, so the conflict check and the no-overlap constraint cover every row.
+        LocalDateTime endTime = appointmentRequest.getEstimatedEndTime() != null
+                ? appointmentRequest.getEstimatedEndTime()
+                : appointmentRequest.getAppointmentDate().plusMinutes(ServiceCatalogService.totalDuration(services));
+
         // Check for appointment conflicts
-        List<Appointment> conflicts = appointmentRepository.findConflictingAppointments(
-                employee, appointmentRequest.getAppointmentDate(), appointmentRequest.getEstimatedEndTime());
+        // Cancelled appointments no longer hold their slot
+        List<AppointmentSlotView> conflicts = appointmentRepository.findOverlappingSlots(
+                employee.getEmployeeId(),
+                appointmentRequest.getAppointmentDate().minusDays(1),
+                appointmentRequest.getAppointmentDate(),
+                endTime,
+                Appointment.AppointmentStatus.CANCELLED);
         if (!conflicts.isEmpty()) {
             logger.warn("Appointment conflict detected for employeeId={} at {}", appointmentRequest.getEmployeeId(), appointmentRequest.getAppointmentDate());
-            throw new RuntimeException("Employee has conflicting appointment at this time");
+            throw new SlotTakenException("Employee has conflicting appointment at this time");
         }
+        // Someone else may be checking out this slot right now
+        slotHoldService.assertNotHeldByOthers(employee.getEmployeeId(), appointmentRequest.getAppointmentDate(),
+                endTime, appointmentRequest.getHoldId());
 
         // Create appointment for the first service (main appointment)
         Appointment appointment = new Appointment();
         appointment.setCustomer(customer);
-        appointment.setService(services.get(0)); // Set first service as primary
+        appointment.setService(serviceRepository.getReferenceById(services.get(0).getId())); // Set first service as primary
         appointment.setEmployee(employee);
         appointment.setSalon(salon);
         appointment.setBranchId(appointmentRequest.getBranchId()); // Set branch ID
         appointment.setAppointmentDate(appointmentRequest.getAppointmentDate());
-        appointment.setEstimatedEndTime(appointmentRequest.getEstimatedEndTime());
+        appointment.setEstimatedEndTime(endTime);
         
         // Set timestamps with current time in the format: 2025-09-06 12:00:00
         LocalDateTime now = LocalDateTime.now();
@@ -282,18 +352,19 @@ public class AppointmentService {
     appointment.setStatus(Appointment.AppointmentStatus.PENDING);
         appointment.setPaymentStatus(Appointment.PaymentStatus.PENDING);
 
-        // Set a temporary appointment number to satisfy NOT NULL constraint
-        appointment.setAppointmentNumber("TEMP-" + System.currentTimeMillis());
-        appointment = appointmentRepository.save(appointment);
-        // Generate the final appointment number using id and date
-        String appointmentNumber = generateAppointmentNumber(appointment.getId(), appointment.getAppointmentDate());
-        appointment.setAppointmentNumber(appointmentNumber);
+        // Number is allocated up front so the booking is a single INSERT
+        appointment.setAppointmentNumber(appointmentNumberAllocator.nextNumber(appointment.getAppointmentDate()));
         appointment = appointmentRepository.save(appointment);
+        markSlotBooked(appointment);
+        if (appointmentRequest.getHoldId() != null) {
+            slotHoldService.releaseAfterCommit(customer.getId(), employee.getEmployeeId(),
+                    appointmentRequest.getAppointmentDate().toLocalDate(), appointmentRequest.getHoldId());
+        }
         
     // Removed Redis publish from appointment creation
         
         logger.info("Appointment created successfully for customer={}, appointmentNumber={}", customer.getPhoneNumber(), appointment.getAppointmentNumber());
-        return mapToAppointmentResponse(appointment);
+        return mapToAppointmentResponse(appointment, services.get(0).getName());
     }
 
     public List<AppointmentResponse> getCustomerAppointments(String token) {
@@ -313,6 +384,8 @@ public class AppointmentService {
         
         Appointment appointment = appointmentRepository.findById(appointmentId)
                 .orElseThrow(() -> new ResourceNotFoundException("Appointment not found with ID: " + appointmentId));
+        // The appointment may move to another barber or day, so the old day is evicted too
+        evictSlotCache(appointment);
         
         // Update appointment details if provided
         if (appointmentRequest.getAppointmentDate() != null) {
@@ -347,6 +420,7 @@ public class AppointmentService {
         
         // Save updated appointment
         appointment = appointmentRepository.save(appointment);
+        evictSlotCache(appointment);
         
         // Publish appointment updated event to Redis Stream
         publishAppointmentUpdatedEvent(appointment);
@@ -355,12 +429,17 @@ public class AppointmentService {
         return mapToAppointmentResponse(appointment);
     }
 
-    @Transactional
+    // Retried on optimistic-locking conflicts, like updateAppointmentStatus
     public void cancelAppointment(Long appointmentId, String cancellationReason) {
+        OptimisticRetry.run(() -> transactionTemplate.executeWithoutResult(status -> applyCancellation(appointmentId, cancellationReason)));
+    }
+
+    private void applyCancellation(Long appointmentId, String cancellationReason) {
         logger.info("Cancelling appointment with ID: {}", appointmentId);
         
         Appointment appointment = appointmentRepository.findById(appointmentId)
                 .orElseThrow(() -> new ResourceNotFoundException("Appointment not found with ID: " + appointmentId));
+        requireTransition(appointment, Appointment.AppointmentStatus.CANCELLED);
         
         // Set cancellation details with proper timestamp format: 2025-09-06 12:00:00
         LocalDateTime now = LocalDateTime.now();
@@ -372,6 +451,7 @@ public class AppointmentService {
         
         // Save cancelled appointment
         appointmentRepository.save(appointment);
+        evictSlotCache(appointment);
         
         // Publish appointment cancelled event to Redis Stream
         publishAppointmentCancelledEvent(appointment);
@@ -379,12 +459,17 @@ public class AppointmentService {
         logger.info("Appointment cancelled successfully with ID: {}", appointmentId);
     }
 
-    @Transactional
+    // Retried on optimistic-locking conflicts, like updateAppointmentStatus
     public void markAppointmentAsCompleted(Long appointmentId) {
+        OptimisticRetry.run(() -> transactionTemplate.executeWithoutResult(status -> applyCompletion(appointmentId)));
+    }
+
+    private void applyCompletion(Long appointmentId) {
         logger.info("Marking appointment as completed with ID: {}", appointmentId);
         
         Appointment appointment = appointmentRepository.findById(appointmentId)
                 .orElseThrow(() -> new ResourceNotFoundException("Appointment not found with ID: " + appointmentId));
+        requireTransition(appointment, Appointment.AppointmentStatus.COMPLETED);
         
         // Set completion details with proper timestamp format: 2025-09-06 12:00:00
         LocalDateTime now = LocalDateTime.now();
@@ -403,12 +488,17 @@ public class AppointmentService {
         logger.info("Appointment marked as completed with ID: {}", appointmentId);
     }
 
-    @Transactional
+    // Retried on optimistic-locking conflicts, like updateAppointmentStatus
     public void markAppointmentAsStarted(Long appointmentId) {
+        OptimisticRetry.run(() -> transactionTemplate.executeWithoutResult(status -> applyStart(appointmentId)));
+    }
+
+    private void applyStart(Long appointmentId) {
         logger.info("Marking appointment as started with ID: {}", appointmentId);
         
         Appointment appointment = appointmentRepository.findById(appointmentId)
                 .orElseThrow(() -> new ResourceNotFoundException("Appointment not found with ID: " + appointmentId));
+        requireTransition(appointment, Appointment.AppointmentStatus.IN_PROGRESS);
         
         // Set start details with proper timestamp format: 2025-09-06 12:00:00
         LocalDateTime now = LocalDateTime.now();
@@ -422,6 +512,17 @@ public class AppointmentService {
         logger.info("Appointment marked as started with ID: {}", appointmentId);
     }
 
+    /**
+     * Checked against the status just read, so a retry after an optimistic-locking conflict sees what the
+     * other writer did and fails instead of overwriting it (e.g. completing an appointment just cancelled).
+     */
+    private void requireTransition(Appointment appointment, Appointment.AppointmentStatus next) {
+        if (!appointment.getStatus().canMoveTo(next)) {
+            throw new com.tiora.mob.exception.InvalidStatusTransitionException("Appointment " + appointment.getId()
+                + " is " + appointment.getStatus() + " and cannot be moved to " + next);
+        }
+    }
+
 
         public AppointmentResponse getAppointmentByNumber(String token, String appointmentNumber) {
                 // Get appointment by business key
@@ -432,7 +533,37 @@ public class AppointmentService {
 
 
 
-    private AppointmentResponse mapToAppointmentResponse(Appointment appointment) {
+    /**
+     * Drop the cached time slots and availability mask of the appointment's barber and day once the current transaction commits.
+     */
+    private void evictSlotCache(Appointment appointment) {
+        if (appointment.getEmployee() == null || appointment.getAppointmentDate() == null) {
+            return;
+        }
+        Long barberId = appointment.getEmployee().getEmployeeId();
+        java.time.LocalDate day = appointment.getAppointmentDate().toLocalDate();
+        timeSlotCacheService.evictAfterCommit(barberId, day);
+        availabilityMaskService.invalidateAfterCommit(barberId, day);
+    }
+
+    /**
+     * A new booking only adds occupied minutes, so the stored mask is updated in place instead of rebuilt.
+     */
+    private void markSlotBooked(Appointment appointment) {
+        if (appointment.getEmployee() == null || appointment.getAppointmentDate() == null) {
+            return;
+        }
+        Long barberId = appointment.getEmployee().getEmployeeId();
+        timeSlotCacheService.evictAfterCommit(barberId, appointment.getAppointmentDate().toLocalDate());
+        availabilityMaskService.occupyAfterCommit(barberId, appointment.getAppointmentDate(), appointment.getEstimatedEndTime());
+    }
+
+    AppointmentResponse mapToAppointmentResponse(Appointment appointment) {
+        return mapToAppointmentResponse(appointment, appointment.getService().getName());
+    }
+
+    // serviceName is passed in so a service held only as a reference is never initialized
+    private AppointmentResponse mapToAppointmentResponse(Appointment appointment, String serviceName) {
         return AppointmentResponse.builder()
             .id(appointment.getId())
             .appointmentNumber(appointment.getAppointmentNumber())
@@ -440,7 +571,7 @@ public class AppointmentService {
             .customerName(appointment.getCustomer().getFirstName() + " " + appointment.getCustomer().getLastName())
             .customerPhone(appointment.getCustomer().getPhoneNumber())
             .serviceId(appointment.getService().getId())
-            .serviceName(appointment.getService().getName())
+            .serviceName(serviceName)
             .employeeId(appointment.getEmployee().getEmployeeId())
             .employeeName(appointment.getEmployee().getFirstName() + " " + appointment.getEmployee().getLastName())
             .salonId(appointment.getSalon().getSalonId())
@@ -491,6 +622,7 @@ public class AppointmentService {
                 appointment.setCancellationReason("PAYMENTFAILED");
                 appointment.setCancelledAt(java.time.LocalDateTime.now());
                 appointment = appointmentRepository.save(appointment);
+                evictSlotCache(appointment);
                 
                 // Publish appointment cancelled event to Redis Stream
                 publishAppointmentCancelledEvent(appointment);
@@ -500,100 +632,60 @@ public class AppointmentService {
         }
 
     /**
-     * Publishes appointment created event to Redis Stream for web backend notification
+     * Records appointment created event in the outbox for web backend notification (published by the relay after commit)
      */
     private void publishAppointmentCreatedEvent(Appointment appointment, List<Service> services, AppointmentRequest request) {
-        try {
-            Map<String, Object> appointmentData = new HashMap<>();
-            appointmentData.put("appointment_number", appointment.getAppointmentNumber());
-            appointmentData.put("appointment_date", appointment.getAppointmentDate().toString());
-            appointmentData.put("estimated_end_time", appointment.getEstimatedEndTime().toString());
-            appointmentData.put("service_names", services.stream().map(Service::getName).collect(Collectors.toList()));
-            appointmentData.put("service_price", appointment.getServicePrice().toString());
-            appointmentData.put("total_amount", appointment.getTotalAmount().toString());
-            appointmentData.put("payment_method", appointment.getPaymentMethod() != null ? appointment.getPaymentMethod().toString() : "");
-            appointmentData.put("status", appointment.getStatus().toString());
-            appointmentData.put("payment_status", appointment.getPaymentStatus().toString());
-            appointmentData.put("booking_platform", "mobile_app");
-            appointmentData.put("customer_name", appointment.getCustomer().getFirstName() + " " + appointment.getCustomer().getLastName());
-            appointmentData.put("customer_phone", appointment.getCustomer().getPhoneNumber());
-            appointmentData.put("employee_name", appointment.getEmployee().getFirstName() + " " + appointment.getEmployee().getLastName());
-
-            // Publish to mobile appointment stream
-            streamPublisher.publishAppointmentCreated(
-                appointment.getSalon().getId(),
-                appointment.getBranchId(),
-                appointment.getId(),
-                appointment.getCustomer().getId(),
-                appointment.getEmployee().getEmployeeId(),
-                appointmentData
-            );
-            // Do NOT publish to barber notification stream for new appointment creation
-        } catch (Exception e) {
-            logger.error("Failed to publish appointment created event for appointment {}: {}", 
-                        appointment.getId(), e.getMessage(), e);
-        }
+        // Not caught: a failed outbox write rolls back the booking rather than committing it without its event
+        Map<String, Object> appointmentData = new HashMap<>();
+        appointmentData.put("appointment_number", appointment.getAppointmentNumber());
+        appointmentData.put("appointment_date", appointment.getAppointmentDate().toString());
+        appointmentData.put("estimated_end_time", appointment.getEstimatedEndTime() != null ? appointment.getEstimatedEndTime().toString() : "");
+        appointmentData.put("service_names", services.stream().map(Service::getName).collect(Collectors.toList()));
+        appointmentData.put("service_price", appointment.getServicePrice() != null ? appointment.getServicePrice().toString() : "");
+        appointmentData.put("total_amount", appointment.getTotalAmount() != null ? appointment.getTotalAmount().toString() : "");
+        appointmentData.put("payment_method", appointment.getPaymentMethod() != null ? appointment.getPaymentMethod().toString() : "");
+        appointmentData.put("status", appointment.getStatus().toString());
+        appointmentData.put("payment_status", appointment.getPaymentStatus() != null ? appointment.getPaymentStatus().toString() : "");
+        appointmentData.put("booking_platform", "mobile_app");
+        appointmentData.put("customer_name", appointment.getCustomer().getFirstName() + " " + appointment.getCustomer().getLastName());
+        appointmentData.put("customer_phone", appointment.getCustomer().getPhoneNumber());
+        appointmentData.put("employee_name", appointment.getEmployee().getFirstName() + " " + appointment.getEmployee().getLastName());
+
+        // Recorded in the outbox with the appointment, the relay publishes it after commit
+        appointmentOutboxService.appointmentCreated(
+            appointment.getSalon().getId(),
+            appointment.getBranchId(),
+            appointment.getId(),
+            appointment.getCustomer().getId(),
+            appointment.getEmployee().getEmployeeId(),
+            appointmentData
+        );
+        // Do NOT publish to barber notification stream for new appointment creation
     }
 
     /**
-     * Publishes appointment updated event to Redis Stream for web backend notification
+     * Records appointment updated event in the outbox for web backend notification (published by the relay after commit)
      */
     private void publishAppointmentUpdatedEvent(Appointment appointment) {
-        try {
-            Map<String, Object> appointmentData = new HashMap<>();
-            appointmentData.put("appointment_number", appointment.getAppointmentNumber());
-            appointmentData.put("appointment_date", appointment.getAppointmentDate().toString());
-            appointmentData.put("estimated_end_time", appointment.getEstimatedEndTime() != null ? appointment.getEstimatedEndTime().toString() : "");
-            appointmentData.put("actual_start_time", appointment.getActualStartTime() != null ? appointment.getActualStartTime().toString() : "");
-            appointmentData.put("actual_end_time", appointment.getActualEndTime() != null ? appointment.getActualEndTime().toString() : "");
-            appointmentData.put("status", appointment.getStatus().toString());
-            appointmentData.put("payment_status", appointment.getPaymentStatus().toString());
-            appointmentData.put("payment_received_at", appointment.getPaymentReceivedAt() != null ? appointment.getPaymentReceivedAt().toString() : "");
-            appointmentData.put("created_at", appointment.getCreatedAt().toString());
-            appointmentData.put("updated_at", appointment.getUpdatedAt().toString());
-
-            streamPublisher.publishAppointmentUpdated(
-                appointment.getSalon().getId(),
-                appointment.getId(),
-                "IN_PROGRESS", // old status (could be stored if needed)
-                appointment.getStatus().toString() // new status
-            );
-        } catch (Exception e) {
-            logger.error("Failed to publish appointment updated event for appointment {}: {}", 
-                        appointment.getId(), e.getMessage(), e);
-        }
+        appointmentOutboxService.appointmentUpdated(
+            appointment.getSalon().getId(),
+            appointment.getId(),
+            "IN_PROGRESS", // old status (could be stored if needed)
+            appointment.getStatus().toString() // new status
+        );
     }
 
     /**
-     * Publishes appointment cancelled event to Redis Stream for web backend notification
+     * Records appointment cancelled event in the outbox for web backend notification (published by the relay after commit)
      */
     private void publishAppointmentCancelledEvent(Appointment appointment) {
-        try {
-            Map<String, Object> appointmentData = new HashMap<>();
-            appointmentData.put("appointment_number", appointment.getAppointmentNumber());
-            appointmentData.put("cancellation_reason", appointment.getCancellationReason() != null ? appointment.getCancellationReason() : "");
-            appointmentData.put("cancelled_by", appointment.getCancelledBy() != null ? appointment.getCancelledBy() : "");
-            appointmentData.put("cancelled_at", appointment.getCancelledAt() != null ? appointment.getCancelledAt().toString() : "");
-            appointmentData.put("status", appointment.getStatus().toString());
-            appointmentData.put("updated_at", appointment.getUpdatedAt().toString());
-
-            streamPublisher.publishAppointmentCancelled(
-                appointment.getSalon().getId(),
-                appointment.getId(),
-                appointment.getCancellationReason() != null ? appointment.getCancellationReason() : "Customer cancellation"
-            );
-        } catch (Exception e) {
-            logger.error("Failed to publish appointment cancelled event for appointment {}: {}", 
-                        appointment.getId(), e.getMessage(), e);
-        }
+        appointmentOutboxService.appointmentCancelled(
+            appointment.getSalon().getId(),
+            appointment.getId(),
+            appointment.getCancellationReason() != null ? appointment.getCancellationReason() : "Customer cancellation"
+        );
     }
 
-        // Generate unique appointment number using id and date
-        private String generateAppointmentNumber(Long id, LocalDateTime appointmentDate) {
-                String datePrefix = appointmentDate.format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-                return String.format("APT-%s-%04d", datePrefix, id);
-        }
-
     /**
      * Get appointment activities by status
      * @param status The appointment status filter
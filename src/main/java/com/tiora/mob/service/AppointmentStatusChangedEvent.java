@@ -0,0 +1,36 @@
+package com.tiora.mob.service;
+
+import java.time.LocalDate;
+
+/**
+ * Published inside the status-change transaction; its follow-ups run after commit in
+ * {@link AppointmentFollowUpService}.
+ */
+public class AppointmentStatusChangedEvent {
+    private final Long appointmentId;
+    private final Long customerId;
+    private final Long branchId;
+    private final String status;
+    private final String customerMessage;
+    private final LocalDate changedOn;
+    private final long publishedAtNanos;
+
+    public AppointmentStatusChangedEvent(Long appointmentId, Long customerId, Long branchId,
+                                         String status, String customerMessage) {
+        this.appointmentId = appointmentId;
+        this.customerId = customerId;
+        this.branchId = branchId;
+        this.status = status;
+        this.customerMessage = customerMessage;
+        this.changedOn = LocalDate.now();
+        this.publishedAtNanos = System.nanoTime();
+    }
+
+    public Long getAppointmentId() { return appointmentId; }
+    public Long getCustomerId() { return customerId; }
+    public Long getBranchId() { return branchId; }
+    public String getStatus() { return status; }
+    public String getCustomerMessage() { return customerMessage; }
+    public LocalDate getChangedOn() { return changedOn; }
+    public long getPublishedAtNanos() { return publishedAtNanos; }
+}
@@ -1,16 +1,16 @@
 package com.tiora.mob.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tiora.mob.dto.AppointmentEventDto;
+import com.tiora.mob.dto.StreamEventEnvelope;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.StreamOperations;
 import org.springframework.stereotype.Service;
 
+import java.time.ZoneId;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -30,40 +30,41 @@ public class AppointmentStreamPublisher {
     private RedisTemplate<String, String> redisTemplate;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private StreamRetentionService streamRetentionService;
+
+    @Autowired
+    private StreamEventCodec streamEventCodec;
 
     /**
      * Publish appointment event to Redis Stream
      */
     public void publishAppointmentEvent(AppointmentEventDto event) {
         try {
-            StreamOperations<String, String, String> streamOps = redisTemplate.opsForStream();
-            
-            Map<String, String> eventData = new HashMap<>();
-            eventData.put("eventType", event.getEventType().toString());
-            eventData.put("appointmentId", String.valueOf(event.getAppointmentId()));
-            eventData.put("salonId", String.valueOf(event.getSalonId()));
-            eventData.put("barberId", event.getEmployeeId() != null ? String.valueOf(event.getEmployeeId()) : "");
-            eventData.put("customerId", String.valueOf(event.getCustomerId()));
-            eventData.put("customerName", event.getCustomerName());
-            eventData.put("customerPhone", event.getCustomerPhone());
-            eventData.put("serviceName", event.getServiceName());
-            eventData.put("appointmentTime", event.getAppointmentTime().toString());
-            eventData.put("status", event.getStatus());
-            eventData.put("messageType", "appointment_created");
-            eventData.put("sourceSystem", "mobile_backend");
-            eventData.put("source", event.getSource());
-            eventData.put("timestamp", event.getTimestamp().toString());
-            
-            // Add metadata as JSON string
-            if (event.getMetadata() != null && !event.getMetadata().isEmpty()) {
-                eventData.put("metadata", objectMapper.writeValueAsString(event.getMetadata()));
-            } else {
-                eventData.put("metadata", "{}");
-            }
+            Map<String, String> attributes = new HashMap<>();
+            attributes.put("customerName", event.getCustomerName());
+            attributes.put("customerPhone", event.getCustomerPhone());
+            attributes.put("serviceName", event.getServiceName());
+            attributes.put("appointmentTime", event.getAppointmentTime().toString());
+            attributes.put("status", event.getStatus());
+
+            StreamEventEnvelope envelope = StreamEventEnvelope.builder()
+                .type("appointment_created")
+                .eventType(event.getEventType().toString())
+                .source(event.getSource())
+                .sourceSystem("mobile_backend")
+                .timestamp(event.getTimestamp() != null
+                    ? event.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : System.currentTimeMillis())
+                .salonId(event.getSalonId())
+                .appointmentId(event.getAppointmentId())
+                .customerId(event.getCustomerId())
+                .barberId(event.getEmployeeId())
+                .attributes(attributes)
+                .metadata(event.getMetadata() != null ? event.getMetadata() : new HashMap<>())
+                .build();
 
             // Publish to appointment events stream
-            var recordId = streamOps.add(appointmentEventsStream, eventData);
+            var recordId = streamRetentionService.add(redisTemplate, appointmentEventsStream, streamEventCodec.encode(envelope));
             
             logger.info("Published appointment event {} to stream: {} with message ID: {}", 
                        event.getEventType(), appointmentEventsStream, recordId.getValue());
@@ -0,0 +1,297 @@
+package com.tiora.mob.service;
+
+import com.tiora.mob.util.DayOccupancy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Materialized per-barber day occupancy masks in Redis.
+ * {@code availability:mask:{barberId}:{date}} holds the day's 1440-minute bitmap in Redis bit order
+ * and {@code availability:mask-version:{barberId}:{date}} counts changes to that day.
+ * Bookings set their minutes in place with SETBIT; cancellations and other changes drop the mask
+ * so the next read rebuilds it. Every write of a freshly computed mask is conditional on the
+ * version read before the database query, so a mask computed from a snapshot that a booking
+ * has since changed is never stored.
+ */
+@Service
+public class AvailabilityMaskService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityMaskService.class);
+    private static final String MASK_PREFIX = "availability:mask:";
+    private static final String VERSION_PREFIX = "availability:mask-version:";
+
+    private static final byte[] WRITE_SCRIPT = (
+        "local v = redis.call('GET', KEYS[2]) or '0' " +
+        "if v ~= ARGV[1] then return 0 end " +
+        "redis.call('SET', KEYS[1], ARGV[2]) " +
+        "redis.call('EXPIREAT', KEYS[1], ARGV[3]) " +
+        "return 1").getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] OCCUPY_SCRIPT = (
+        "redis.call('INCR', KEYS[2]) " +
+        "redis.call('EXPIREAT', KEYS[2], ARGV[3]) " +
+        "if redis.call('EXISTS', KEYS[1]) == 1 then " +
+        "  for m = tonumber(ARGV[1]), tonumber(ARGV[2]) - 1 do redis.call('SETBIT', KEYS[1], m, 1) end " +
+        "end " +
+        "return 1").getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] INVALIDATE_SCRIPT = (
+        "redis.call('INCR', KEYS[2]) " +
+        "redis.call('EXPIREAT', KEYS[2], ARGV[1]) " +
+        "redis.call('DEL', KEYS[1]) " +
+        "return 1").getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Counter hits;
+    private final Counter misses;
+
+    @Value("${app.availability.mask.enabled:true}")
+    private boolean enabled;
+
+    public AvailabilityMaskService(@Qualifier("customStringRedisTemplate") RedisTemplate<String, String> redisTemplate,
+                                   MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.hits = Counter.builder("availability.mask.requests")
+            .tag("result", "hit")
+            .description("Materialized availability mask lookups")
+            .register(meterRegistry);
+        this.misses = Counter.builder("availability.mask.requests")
+            .tag("result", "miss")
+            .description("Materialized availability mask lookups")
+            .register(meterRegistry);
+    }
+
+    /**
+     * One barber-day read from Redis: the stored occupancy (null on a miss) and the
+     * version to pass back to {@link #write} once it has been computed live.
+     */
+    public static final class MaskEntry {
+        private final Long barberId;
+        private final LocalDate date;
+        private final DayOccupancy occupancy;
+        private final String version;
+
+        private MaskEntry(Long barberId, LocalDate date, DayOccupancy occupancy, String version) {
+            this.barberId = barberId;
+            this.date = date;
+            this.occupancy = occupancy;
+            this.version = version;
+        }
+
+        public Long getBarberId() { return barberId; }
+        public LocalDate getDate() { return date; }
+        public DayOccupancy getOccupancy() { return occupancy; }
+    }
+
+    public MaskEntry read(Long barberId, LocalDate date) {
+        return read(List.of(barberId), List.of(date)).get(0);
+    }
+
+    /**
+     * Masks of one barber over the inclusive range [from, to], read in one pipeline.
+     */
+    public List<MaskEntry> read(Long barberId, LocalDate from, LocalDate to) {
+        List<Long> barberIds = new ArrayList<>();
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            barberIds.add(barberId);
+            dates.add(day);
+        }
+        return read(barberIds, dates);
+    }
+
+    /**
+     * Masks of several barbers on one day, read in one pipeline.
+     */
+    public List<MaskEntry> read(List<Long> barberIds, LocalDate date) {
+        return read(barberIds, Collections.nCopies(barberIds.size(), date));
+    }
+
+    /**
+     * Masks for the barber-day pairs given as two lists of equal length, in the same order.
+     * When Redis cannot be read every entry is a miss that will not be written back.
+     */
+    @SuppressWarnings("unchecked")
+    public List<MaskEntry> read(List<Long> barberIds, List<LocalDate> dates) {
+        List<MaskEntry> entries = new ArrayList<>(barberIds.size());
+        if (!enabled || barberIds.isEmpty()) {
+            for (int i = 0; i < barberIds.size(); i++) {
+                entries.add(new MaskEntry(barberIds.get(i), dates.get(i), null, null));
+            }
+            return entries;
+        }
+        byte[][] maskKeys = new byte[barberIds.size()][];
+        byte[][] versionKeys = new byte[barberIds.size()][];
+        for (int i = 0; i < barberIds.size(); i++) {
+            maskKeys[i] = bytes(MASK_PREFIX + barberIds.get(i) + ":" + dates.get(i));
+            versionKeys[i] = bytes(VERSION_PREFIX + barberIds.get(i) + ":" + dates.get(i));
+        }
+        try {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.stringCommands().mGet(versionKeys);
+                connection.stringCommands().mGet(maskKeys);
+                return null;
+            }, RedisSerializer.byteArray());
+            List<byte[]> versions = (List<byte[]>) results.get(0);
+            List<byte[]> masks = (List<byte[]>) results.get(1);
+            for (int i = 0; i < barberIds.size(); i++) {
+                byte[] mask = masks.get(i);
+                byte[] version = versions.get(i);
+                if (mask != null) {
+                    hits.increment();
+                } else {
+                    misses.increment();
+                }
+                entries.add(new MaskEntry(barberIds.get(i), dates.get(i),
+                    mask != null ? DayOccupancy.fromRedisBytes(mask) : null,
+                    version != null ? new String(version, StandardCharsets.UTF_8) : "0"));
+            }
+        } catch (Exception e) {
+            logger.warn("Could not read availability masks: {}", e.getMessage());
+            entries.clear();
+            for (int i = 0; i < barberIds.size(); i++) {
+                entries.add(new MaskEntry(barberIds.get(i), dates.get(i), null, null));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Store the occupancy computed for an entry that was a miss, unless the day changed since it was read.
+     */
+    public void write(MaskEntry entry, DayOccupancy occupancy) {
+        writeAll(List.of(entry), List.of(occupancy));
+    }
+
+    /**
+     * Conditional writes for several entries in one pipeline. Returns how many were stored.
+     */
+    public int writeAll(List<MaskEntry> entries, List<DayOccupancy> occupancies) {
+        if (!enabled || entries.isEmpty()) {
+            return 0;
+        }
+        try {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < entries.size(); i++) {
+                    MaskEntry entry = entries.get(i);
+                    if (entry.version == null) continue;
+                    connection.scriptingCommands().eval(WRITE_SCRIPT, ReturnType.INTEGER, 2,
+                        maskKey(entry.barberId, entry.date), versionKey(entry.barberId, entry.date),
+                        bytes(entry.version), occupancies.get(i).toRedisBytes(), bytes(String.valueOf(expireAt(entry.date))));
+                }
+                return null;
+            }, RedisSerializer.byteArray());
+            int written = 0;
+            for (Object result : results) {
+                if (result instanceof Long && (Long) result == 1L) written++;
+            }
+            return written;
+        } catch (Exception e) {
+            logger.warn("Could not write availability masks: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Mark a new booking's minutes as taken in the stored mask, after the surrounding transaction commits.
+     */
+    public void occupyAfterCommit(Long barberId, LocalDateTime start, LocalDateTime end) {
+        if (!enabled || barberId == null || start == null || end == null) {
+            return;
+        }
+        afterCommit(() -> {
+            LocalDate day = start.toLocalDate();
+            int from = DayOccupancy.floorMinute(start.toLocalTime());
+            int to = end.toLocalDate().isAfter(day) ? DayOccupancy.MINUTES_PER_DAY : DayOccupancy.ceilMinute(end.toLocalTime());
+            if (from >= to) {
+                return;
+            }
+            redisTemplate.execute((RedisCallback<Object>) connection -> connection.scriptingCommands().eval(
+                OCCUPY_SCRIPT, ReturnType.INTEGER, 2, maskKey(barberId, day), versionKey(barberId, day),
+                bytes(String.valueOf(from)), bytes(String.valueOf(to)), bytes(String.valueOf(expireAt(day)))));
+            // A booking past midnight also takes the start of the next day; rebuild that one
+            if (end.toLocalDate().isAfter(day)) {
+                invalidate(barberId, end.toLocalDate());
+            }
+        });
+    }
+
+    /**
+     * Drop the barber's mask for the day after the surrounding transaction commits.
+     */
+    public void invalidateAfterCommit(Long barberId, LocalDate date) {
+        if (!enabled || barberId == null || date == null) {
+            return;
+        }
+        afterCommit(() -> invalidate(barberId, date));
+    }
+
+    public void invalidate(Long barberId, LocalDate date) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            redisTemplate.execute((RedisCallback<Object>) connection -> connection.scriptingCommands().eval(
+                INVALIDATE_SCRIPT, ReturnType.INTEGER, 2, maskKey(barberId, date), versionKey(barberId, date),
+                bytes(String.valueOf(expireAt(date)))));
+        } catch (Exception e) {
+            logger.warn("Could not invalidate availability mask for barber {} on {}: {}", barberId, date, e.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        Runnable safe = () -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                logger.warn("Availability mask update failed: {}", e.getMessage());
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            safe.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                safe.run();
+            }
+        });
+    }
+
+    // Masks (and their versions) are useless once the day is over; keep them one extra day for late readers
+    private static long expireAt(LocalDate date) {
+        return date.plusDays(2).atStartOfDay(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private static byte[] maskKey(Long barberId, LocalDate date) {
+        return bytes(MASK_PREFIX + barberId + ":" + date);
+    }
+
+    private static byte[] versionKey(Long barberId, LocalDate date) {
+        return bytes(VERSION_PREFIX + barberId + ":" + date);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
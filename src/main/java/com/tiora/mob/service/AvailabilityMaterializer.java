@@ -0,0 +1,128 @@
+package com.tiora.mob.service;
+
+import com.tiora.mob.entity.Appointment;
+import com.tiora.mob.entity.Branch;
+import com.tiora.mob.entity.Employee;
+import com.tiora.mob.repository.AppointmentRepository;
+import com.tiora.mob.repository.AppointmentSlotView;
+import com.tiora.mob.repository.BranchRepository;
+import com.tiora.mob.repository.EmployeeRepository;
+import com.tiora.mob.util.DayOccupancy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Nightly job that materializes every active barber's occupancy masks for the next N days,
+ * so availability lookups for the days customers ask about most are served from Redis.
+ * Work is partitioned by branch (one appointment query per branch) and branches run in parallel.
+ */
+@Service
+public class AvailabilityMaterializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityMaterializer.class);
+
+    @Autowired
+    private BranchRepository branchRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private AvailabilityMaskService availabilityMaskService;
+
+    @Value("${app.availability.materialize.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.availability.materialize.days:7}")
+    private int days;
+
+    // Each branch holds one connection while it runs, keep well below the Hikari pool size
+    @Value("${app.availability.materialize.parallelism:4}")
+    private int parallelism;
+
+    @Scheduled(cron = "${app.availability.materialize.cron:0 30 2 * * *}")
+    public void materializeUpcomingDays() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        LocalDate from = LocalDate.now();
+        LocalDate to = from.plusDays(days - 1L);
+        List<Branch> branches = branchRepository.findByStatus(Branch.BranchStatus.ACTIVE);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        int written = 0;
+        int failed = 0;
+        try {
+            List<Future<Integer>> results = new ArrayList<>(branches.size());
+            for (Branch branch : branches) {
+                Long branchId = branch.getBranchId();
+                results.add(pool.submit(() -> materializeBranch(branchId, from, to)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    written += results.get(i).get();
+                } catch (Exception e) {
+                    failed++;
+                    logger.error("Availability materialization failed for branch {}: {}",
+                        branches.get(i).getBranchId(), e.getMessage(), e);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        logger.info("Materialized {} barber-day masks for {} branches ({} failed), {} to {}, in {} ms",
+            written, branches.size(), failed, from, to, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Materialize the masks of one branch's active barbers over [from, to]. Returns the number of masks stored.
+     */
+    int materializeBranch(Long branchId, LocalDate from, LocalDate to) {
+        List<Long> barberIds = employeeRepository.findEmployeeIdsByBranchAndRoleAndStatus(
+            branchId, Employee.Role.BARBER, Employee.EmployeeStatus.ACTIVE);
+        if (barberIds.isEmpty()) {
+            return 0;
+        }
+        List<Long> entryBarbers = new ArrayList<>();
+        List<LocalDate> entryDates = new ArrayList<>();
+        for (Long barberId : barberIds) {
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                entryBarbers.add(barberId);
+                entryDates.add(day);
+            }
+        }
+        // Versions are read before the query so days booked meanwhile are not overwritten with stale masks
+        List<AvailabilityMaskService.MaskEntry> entries = availabilityMaskService.read(entryBarbers, entryDates);
+
+        Map<Long, Map<LocalDate, DayOccupancy>> occupancy = new HashMap<>();
+        for (AppointmentSlotView slot : appointmentRepository.findByEmployeeIdInAndAppointmentDateRange(
+                barberIds, from.atStartOfDay(), to.plusDays(1).atStartOfDay(), Appointment.AppointmentStatus.CANCELLED)) {
+            LocalDate day = slot.getAppointmentDate().toLocalDate();
+            occupancy.computeIfAbsent(slot.getEmployeeId(), id -> new HashMap<>())
+                .computeIfAbsent(day, d -> new DayOccupancy())
+                .occupy(day, slot.getAppointmentDate(), slot.getEndTime());
+        }
+        List<DayOccupancy> masks = new ArrayList<>(entries.size());
+        for (AvailabilityMaskService.MaskEntry entry : entries) {
+            masks.add(occupancy.getOrDefault(entry.getBarberId(), Map.of())
+                .getOrDefault(entry.getDate(), new DayOccupancy()));
+        }
+        return availabilityMaskService.writeAll(entries, masks);
+    }
+}
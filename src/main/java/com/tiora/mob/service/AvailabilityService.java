@@ -2,71 +2,278 @@
 package com.tiora.mob.service;
 
 import com.tiora.mob.dto.response.ServiceResponse;
+import com.tiora.mob.dto.response.AvailableBarberResponse;
+import com.tiora.mob.dto.response.AvailableBarbersResponse;
+import com.tiora.mob.dto.response.AvailableDatesResponse;
 import com.tiora.mob.dto.response.AvailableTimeSlotsResponse;
 import com.tiora.mob.entity.Appointment;
 import com.tiora.mob.entity.Employee;
 import com.tiora.mob.entity.Service;
 import com.tiora.mob.exception.ResourceNotFoundException;
 import com.tiora.mob.repository.AppointmentRepository;
+import com.tiora.mob.repository.AppointmentSlotView;
 import com.tiora.mob.repository.EmployeeRepository;
 import com.tiora.mob.repository.ServiceRepository;
+import com.tiora.mob.util.DayOccupancy;
 import com.tiora.mob.util.TimeSlotUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 // Use fully qualified name for annotation if needed
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import com.tiora.mob.entity.WorkingHours;
 
 @org.springframework.stereotype.Service
 public class AvailabilityService {
+    public static final int MAX_CALENDAR_DAYS = 60;
+    private static final DateTimeFormatter HH_MM = DateTimeFormatter.ofPattern("HH:mm");
+
     @Autowired
-    private com.tiora.mob.repository.EmployeeLeaveRepository employeeLeaveRepository;
+    private LeaveCalendarService leaveCalendarService;
     @Autowired
     private AppointmentRepository appointmentRepository;
     @Autowired
     private EmployeeRepository employeeRepository;
     @Autowired
     private ServiceRepository serviceRepository;
+    @Autowired
+    private TimeSlotCacheService timeSlotCacheService;
+    @Autowired
+    private ServiceCatalogService serviceCatalogService;
+    @Autowired
+    private SlotHoldService slotHoldService;
+    @Autowired
+    private AvailabilityMaskService availabilityMaskService;
 
     public AvailableTimeSlotsResponse getAvailableTimeSlots(Long salonId, String serviceIds, Long barberId, String date, String customerGender) {
         java.time.LocalDate selectedDate = java.time.LocalDate.parse(date);
         // Check if barber is on APPROVED leave for selected date
-        java.util.List<com.tiora.mob.entity.EmployeeLeave> leaves = employeeLeaveRepository.findByEmployee_EmployeeId(barberId);
-        boolean isOnLeave = leaves.stream().anyMatch(l ->
-            l.getStatus() == com.tiora.mob.entity.EmployeeLeave.LeaveStatus.APPROVED &&
-            ( !selectedDate.isBefore(l.getStartDate()) && !selectedDate.isAfter(l.getEndDate()) )
-        );
-        if (isOnLeave) {
+        if (leaveCalendarService.isOnLeave(barberId, selectedDate)) {
             throw new com.tiora.mob.exception.ResourceNotFoundException("You selected Barber is not available today. Please select another Day or change the barber");
         }
+        int totalDuration = resolveTotalDuration(salonId, serviceIds);
+        java.util.Optional<AvailableTimeSlotsResponse> cached = timeSlotCacheService.get(salonId, barberId, selectedDate, totalDuration);
+        if (cached.isPresent()) {
+            return withHolds(cached.get(), barberId, selectedDate);
+        }
         Employee employee = employeeRepository.findByEmployeeIdAndSalonId(barberId, salonId)
             .orElseThrow(() -> new ResourceNotFoundException("Employee not found"));
-        // Parse serviceIds and sum durations
-        int totalDuration = 0;
-        String[] serviceIdArr = serviceIds.split(",");
-        for (String sid : serviceIdArr) {
-            Long serviceId = Long.parseLong(sid.trim());
-            com.tiora.mob.entity.Service service = serviceRepository.findByIdAndSalonId(serviceId, salonId)
-                .orElseThrow(() -> new ResourceNotFoundException("Service not found"));
-            totalDuration += service.getDurationMinutes();
+        // Materialized mask first; on a miss compute live and store it for the next lookup
+        AvailabilityMaskService.MaskEntry mask = availabilityMaskService.read(barberId, selectedDate);
+        DayOccupancy occupancy = mask.getOccupancy();
+        if (occupancy == null) {
+            // CANCELLED appointments are skipped so those timeslots are available
+            List<AppointmentSlotView> appointments = appointmentRepository.findByEmployeeIdAndAppointmentDateRange(
+                barberId, selectedDate.atStartOfDay(), selectedDate.plusDays(1).atStartOfDay(),
+                Appointment.AppointmentStatus.CANCELLED);
+            occupancy = TimeSlotUtil.occupancyOfSlots(selectedDate, appointments);
+            availabilityMaskService.write(mask, occupancy);
         }
-        List<Appointment> appointments = appointmentRepository
-            .findByEmployeeIdAndDate(barberId, LocalDate.parse(date));
-        // Exclude CANCELLED appointments so those timeslots are available
-        List<Appointment> activeAppointments = appointments.stream()
-            .filter(a -> a.getStatus() != Appointment.AppointmentStatus.CANCELLED)
-            .collect(java.util.stream.Collectors.toList());
-        WorkingHours workingHours = employee.getWorkingHoursForDate(LocalDate.parse(date));
-        List<AvailableTimeSlotsResponse.TimeSlot> slots = com.tiora.mob.util.TimeSlotUtil.calculateAvailableSlots(
-            workingHours, activeAppointments, totalDuration
+        WorkingHours workingHours = employee.getWorkingHoursForDate(selectedDate);
+        List<AvailableTimeSlotsResponse.TimeSlot> slots = TimeSlotUtil.calculateAvailableSlots(
+            workingHours, occupancy, totalDuration
         );
-        return new AvailableTimeSlotsResponse(
+        AvailableTimeSlotsResponse response = new AvailableTimeSlotsResponse(
             slots,
             employee.getEmployeeId(),
             employee.getFirstName() + " " + employee.getLastName(),
             totalDuration
         );
+        timeSlotCacheService.put(salonId, barberId, selectedDate, totalDuration, response);
+        return withHolds(response, barberId, selectedDate);
+    }
+
+    // Checkout holds change by the minute, so they are laid over the (cached) slot list on every request
+    private AvailableTimeSlotsResponse withHolds(AvailableTimeSlotsResponse response, Long barberId, LocalDate date) {
+        TimeSlotUtil.markHeld(response.getAvailableSlots(), slotHoldService.heldOccupancy(barberId, date));
+        return response;
+    }
+
+    /**
+     * Bookable dates for a barber and a set of services over {@code days} days starting at {@code startDate}.
+     * Appointments and approved leave for the whole range are loaded with one query each,
+     * then every day is checked in memory against the occupancy bitmap.
+     */
+    public AvailableDatesResponse getAvailableDates(Long salonId, String serviceIds, Long barberId, String startDate, int days) {
+        if (days < 1 || days > MAX_CALENDAR_DAYS) {
+            throw new IllegalArgumentException("days must be between 1 and " + MAX_CALENDAR_DAYS);
+        }
+        LocalDate from = startDate == null || startDate.isBlank() ? LocalDate.now() : LocalDate.parse(startDate);
+        LocalDate to = from.plusDays(days - 1L);
+        Employee employee = employeeRepository.findByEmployeeIdAndSalonId(barberId, salonId)
+            .orElseThrow(() -> new ResourceNotFoundException("Employee not found"));
+        int totalDuration = resolveTotalDuration(salonId, serviceIds);
+
+        java.util.Set<LocalDate> leaveDays = leaveCalendarService.leaveDaysBetween(barberId, from, to);
+        Map<LocalDate, DayOccupancy> occupancyByDay = new HashMap<>();
+        List<AvailabilityMaskService.MaskEntry> misses = new ArrayList<>();
+        for (AvailabilityMaskService.MaskEntry mask : availabilityMaskService.read(barberId, from, to)) {
+            if (mask.getOccupancy() != null) {
+                occupancyByDay.put(mask.getDate(), mask.getOccupancy());
+            } else {
+                misses.add(mask);
+            }
+        }
+        if (!misses.isEmpty()) {
+            // One range query covering every missed day, then store those days' masks
+            LocalDate missFrom = misses.get(0).getDate();
+            LocalDate missTo = misses.get(misses.size() - 1).getDate();
+            Map<LocalDate, DayOccupancy> live = new HashMap<>();
+            for (AppointmentSlotView appointment : appointmentRepository.findByEmployeeIdAndAppointmentDateRange(
+                    barberId, missFrom.atStartOfDay(), missTo.plusDays(1).atStartOfDay(), Appointment.AppointmentStatus.CANCELLED)) {
+                LocalDate day = appointment.getAppointmentDate().toLocalDate();
+                live.computeIfAbsent(day, d -> new DayOccupancy())
+                    .occupy(day, appointment.getAppointmentDate(), appointment.getEndTime());
+            }
+            List<DayOccupancy> computed = new ArrayList<>(misses.size());
+            for (AvailabilityMaskService.MaskEntry mask : misses) {
+                DayOccupancy occupancy = live.getOrDefault(mask.getDate(), new DayOccupancy());
+                computed.add(occupancy);
+                occupancyByDay.put(mask.getDate(), occupancy);
+            }
+            availabilityMaskService.writeAll(misses, computed);
+        }
+        slotHoldService.heldOccupancy(barberId, from, to)
+            .forEach((day, held) -> occupancyByDay.computeIfAbsent(day, d -> new DayOccupancy()).merge(held));
+
+        List<LocalDate> availableDates = new ArrayList<>(days);
+        DayOccupancy emptyDay = new DayOccupancy();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            if (leaveDays.contains(day)) continue;
+            DayOccupancy occupancy = occupancyByDay.getOrDefault(day, emptyDay);
+            if (TimeSlotUtil.hasAvailableSlot(employee.getWorkingHoursForDate(day), occupancy, totalDuration)) {
+                availableDates.add(day);
+            }
+        }
+        WorkingHours firstDayHours = employee.getWorkingHoursForDate(from);
+        return new AvailableDatesResponse(
+            availableDates,
+            totalDuration,
+            firstDayHours != null ? firstDayHours.getStartTime().format(HH_MM) : null,
+            firstDayHours != null ? firstDayHours.getEndTime().format(HH_MM) : null
+        );
+    }
+
+    /**
+     * "Any available barber" search for a branch on one date.
+     * Candidate barbers, their approved leave and their appointments are each loaded with a single
+     * set-based query; free slots are then computed per barber in parallel and merged into a
+     * slot -> barbers view.
+     */
+    public AvailableBarbersResponse getAvailableBarbersForBranch(Long salonId, Long branchId, String serviceIds, String date, String gender) {
+        LocalDate selectedDate = LocalDate.parse(date);
+        String genderNorm = (gender == null || gender.isBlank()) ? "BOTH" : gender.trim().toUpperCase();
+        int totalDuration = resolveTotalDuration(salonId, serviceIds);
+
+        List<Employee> candidates = employeeRepository.findAvailableBarbersByServiceAndGenderAndBranch(
+            toSpecializationJson(serviceIds), genderNorm, branchId);
+        if (candidates.isEmpty()) {
+            return new AvailableBarbersResponse("No barbers found for the selected services in this branch", true);
+        }
+        List<Long> candidateIds = candidates.stream().map(Employee::getEmployeeId).collect(Collectors.toList());
+
+        java.util.Set<Long> onLeave = leaveCalendarService.employeesOnLeave(candidateIds, selectedDate);
+        Map<Long, DayOccupancy> occupancyByBarber = new HashMap<>();
+        List<AvailabilityMaskService.MaskEntry> misses = new ArrayList<>();
+        for (AvailabilityMaskService.MaskEntry mask : availabilityMaskService.read(candidateIds, selectedDate)) {
+            if (mask.getOccupancy() != null) {
+                occupancyByBarber.put(mask.getBarberId(), mask.getOccupancy());
+            } else {
+                misses.add(mask);
+            }
+        }
+        if (!misses.isEmpty()) {
+            // One query for every barber without a materialized mask, then store their masks
+            List<Long> missingIds = misses.stream().map(AvailabilityMaskService.MaskEntry::getBarberId).collect(Collectors.toList());
+            for (AppointmentSlotView appointment : appointmentRepository.findByEmployeeIdInAndAppointmentDateRange(
+                    missingIds, selectedDate.atStartOfDay(), selectedDate.plusDays(1).atStartOfDay(),
+                    Appointment.AppointmentStatus.CANCELLED)) {
+                occupancyByBarber.computeIfAbsent(appointment.getEmployeeId(), id -> new DayOccupancy())
+                    .occupy(selectedDate, appointment.getAppointmentDate(), appointment.getEndTime());
+            }
+            List<DayOccupancy> computed = new ArrayList<>(misses.size());
+            for (AvailabilityMaskService.MaskEntry mask : misses) {
+                computed.add(occupancyByBarber.computeIfAbsent(mask.getBarberId(), id -> new DayOccupancy()));
+            }
+            availabilityMaskService.writeAll(misses, computed);
+        }
+        slotHoldService.heldOccupancy(candidateIds, selectedDate)
+            .forEach((barberId, held) -> occupancyByBarber.computeIfAbsent(barberId, id -> new DayOccupancy()).merge(held));
+
+        // Pure in-memory work from here on: no lazy associations are touched on the worker threads
+        DayOccupancy emptyDay = new DayOccupancy();
+        Map<Long, List<AvailableTimeSlotsResponse.TimeSlot>> slotsByBarber = candidates.parallelStream()
+            .filter(e -> !onLeave.contains(e.getEmployeeId()))
+            .collect(Collectors.toConcurrentMap(
+                Employee::getEmployeeId,
+                e -> TimeSlotUtil.calculateAvailableSlots(
+                    e.getWorkingHoursForDate(selectedDate),
+                    occupancyByBarber.getOrDefault(e.getEmployeeId(), emptyDay),
+                    totalDuration)));
+
+        java.util.TreeMap<LocalTime, AvailableBarbersResponse.SlotBarbers> merged = new java.util.TreeMap<>();
+        List<AvailableBarberResponse> availableBarbers = new ArrayList<>();
+        for (Employee barber : candidates) {
+            List<AvailableTimeSlotsResponse.TimeSlot> slots = slotsByBarber.get(barber.getEmployeeId());
+            if (slots == null) continue;
+            boolean hasFreeSlot = false;
+            for (AvailableTimeSlotsResponse.TimeSlot slot : slots) {
+                if (!Boolean.TRUE.equals(slot.getIsAvailable())) continue;
+                hasFreeSlot = true;
+                merged.computeIfAbsent(slot.getStartTime(),
+                        t -> new AvailableBarbersResponse.SlotBarbers(slot.getStartTime(), slot.getEndTime(), new ArrayList<>()))
+                    .getBarberIds().add(barber.getEmployeeId());
+            }
+            if (hasFreeSlot) {
+                availableBarbers.add(toAvailableBarberResponse(barber, genderNorm));
+            }
+        }
+
+        AvailableBarbersResponse response = new AvailableBarbersResponse(
+            availableBarbers, candidates.size() - onLeave.size(), candidates.size());
+        response.setAvailableSlots(new ArrayList<>(merged.values()));
+        response.setTotalDurationMinutes(totalDuration);
+        return response;
+    }
+
+    // Specializations are stored as [{"id": 1, ...}]; containment of every selected id means the barber can do them all
+    private static String toSpecializationJson(String serviceIds) {
+        StringBuilder json = new StringBuilder("[");
+        for (String sid : serviceIds.split(",")) {
+            if (json.length() > 1) json.append(',');
+            json.append("{\"id\":").append(Long.parseLong(sid.trim())).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static AvailableBarberResponse toAvailableBarberResponse(Employee employee, String servesGender) {
+        List<String> specialties = new ArrayList<>();
+        if (employee.getSpecializations() != null) {
+            for (Map<String, Object> spec : employee.getSpecializations()) {
+                Object name = spec.get("name");
+                if (name != null) specialties.add(name.toString());
+            }
+        }
+        return new AvailableBarberResponse(
+            employee.getEmployeeId(),
+            employee.getFirstName() + " " + employee.getLastName(),
+            employee.getProfileImageUrl(),
+            null,
+            specialties,
+            employee.getRatings() != null ? (int) Math.round(employee.getRatings()) : null,
+            true,
+            servesGender
+        );
+    }
+
+    // Parse comma-separated serviceIds and sum their durations
+    private int resolveTotalDuration(Long salonId, String serviceIds) {
+        return ServiceCatalogService.totalDuration(serviceCatalogService.resolve(salonId, serviceIds));
     }
 
     /**
@@ -0,0 +1,91 @@
+package com.tiora.mob.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Change counters in Redis ({@code cache-version:{cache}:{id}}) for data cached in each instance's memory.
+ * The stream events that announce a change reach only one consumer of a group, so that consumer bumps the
+ * counter and every instance compares it with the version its copy was loaded at, reloading on a mismatch.
+ * When Redis cannot be read the version is unknown (null) and callers fall back to their TTL.
+ */
+@Service
+public class CacheVersionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheVersionService.class);
+    private static final String KEY_PREFIX = "cache-version:";
+    private static final String INITIAL = "0";
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    public CacheVersionService(@Qualifier("customStringRedisTemplate") RedisTemplate<String, String> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Current version of one entry; null when Redis is unavailable.
+     */
+    public String current(String cache, Long id) {
+        try {
+            String version = redisTemplate.opsForValue().get(key(cache, id));
+            return version != null ? version : INITIAL;
+        } catch (Exception e) {
+            logger.warn("Could not read {} version of {}: {}", cache, id, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Current versions of several entries in one round trip, in order; all null when Redis is unavailable.
+     */
+    public List<String> current(String cache, List<Long> ids) {
+        List<String> keys = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            keys.add(key(cache, id));
+        }
+        try {
+            List<String> versions = redisTemplate.opsForValue().multiGet(keys);
+            if (versions == null) {
+                return Collections.nCopies(ids.size(), null);
+            }
+            List<String> current = new ArrayList<>(versions.size());
+            for (String version : versions) {
+                current.add(version != null ? version : INITIAL);
+            }
+            return current;
+        } catch (Exception e) {
+            logger.warn("Could not read {} versions: {}", cache, e.getMessage());
+            return Collections.nCopies(ids.size(), null);
+        }
+    }
+
+    /**
+     * Mark the entry changed for every instance.
+     */
+    public void bump(String cache, Long id) {
+        try {
+            redisTemplate.opsForValue().increment(key(cache, id));
+        } catch (Exception e) {
+            logger.warn("Could not bump {} version of {}, other instances reload after their TTL: {}", cache, id, e.getMessage());
+        }
+    }
+
+    /**
+     * True when a copy loaded at {@code loaded} is outdated by {@code current}. An unknown current
+     * version never invalidates; a copy loaded while the version was unknown is replaced once it is known.
+     */
+    public static boolean isStale(String loaded, String current) {
+        return current != null && !current.equals(loaded);
+    }
+
+    private static String key(String cache, Long id) {
+        return KEY_PREFIX + cache + ":" + id;
+    }
+}
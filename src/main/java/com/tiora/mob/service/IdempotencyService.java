@@ -0,0 +1,166 @@
+package com.tiora.mob.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tiora.mob.exception.IdempotencyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key support for retried mobile writes.
+ * The first request with a key claims {@code idempotency:{scope}:{caller}:{key}} with SET NX and runs;
+ * its response (status and JSON body) then replaces the claim for the retention TTL. Retries with
+ * the same key and the same request are answered from Redis without running the handler again.
+ * The caller is the customer id from the request's token, so keys of different customers never meet
+ * and a retry after a token refresh still matches. Each entry keeps a SHA-256 fingerprint of the payload,
+ * so a key reused for another request is rejected instead of replaying the wrong response.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final String KEY_PREFIX = "idempotency:";
+    private static final int MAX_KEY_LENGTH = 128;
+
+    @Autowired
+    @Qualifier("customStringRedisTemplate")
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AuthService authService;
+
+    @Value("${app.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    // How long a claim survives a crashed handler before the key can be retried
+    @Value("${app.idempotency.in-progress-seconds:60}")
+    private long inProgressSeconds;
+
+    /**
+     * Run {@code handler} once per idempotency key. Without a key the handler simply runs.
+     *
+     * @param scope         endpoint name, keys are only unique within it (and per caller)
+     * @param authorization the request's Authorization header, identifies the caller when a key is sent
+     * @param key           the client's Idempotency-Key header, may be null
+     * @param fingerprint   anything identifying the request payload
+     */
+    public ResponseEntity<?> execute(String scope, String authorization, String key, Object fingerprint,
+                                     Supplier<ResponseEntity<?>> handler) {
+        if (key == null || key.isBlank()) {
+            return handler.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        Long customerId = authService.getCustomerIdFromToken(authorization);
+        String redisKey = KEY_PREFIX + scope + ":" + customerId + ":" + key;
+        String hash = hash(fingerprint);
+
+        Boolean claimed;
+        try {
+            claimed = redisTemplate.opsForValue().setIfAbsent(redisKey, claim(hash), Duration.ofSeconds(inProgressSeconds));
+        } catch (Exception e) {
+            // Without Redis we cannot deduplicate; behave as if no key was sent
+            logger.warn("Idempotency store unavailable, running {} without key {}: {}", scope, key, e.getMessage());
+            return handler.get();
+        }
+        if (!Boolean.TRUE.equals(claimed)) {
+            return replay(redisKey, hash);
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = handler.get();
+        } catch (RuntimeException e) {
+            // Failed attempts are not recorded, the client may retry with the same key
+            forget(redisKey);
+            throw e;
+        }
+        store(redisKey, hash, response);
+        return response;
+    }
+
+    private ResponseEntity<?> replay(String redisKey, String hash) {
+        String stored = redisTemplate.opsForValue().get(redisKey);
+        if (stored == null) {
+            throw new IdempotencyException(HttpStatus.CONFLICT, "A request with this " + HEADER + " was just completed, retry");
+        }
+        try {
+            JsonNode entry = objectMapper.readTree(stored);
+            if (!hash.equals(entry.path("fingerprint").asText())) {
+                throw new IdempotencyException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER + " was already used for a different request");
+            }
+            if (!entry.has("status")) {
+                throw new IdempotencyException(HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress");
+            }
+            JsonNode body = entry.get("body");
+            return ResponseEntity.status(entry.get("status").asInt()).body(body == null || body.isNull() ? null : body);
+        } catch (IdempotencyException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable idempotency entry " + redisKey, e);
+        }
+    }
+
+    private void store(String redisKey, String hash, ResponseEntity<?> response) {
+        // Server errors are worth retrying, so they are not replayed
+        if (response.getStatusCode().is5xxServerError()) {
+            forget(redisKey);
+            return;
+        }
+        try {
+            ObjectNode entry = objectMapper.createObjectNode();
+            entry.put("fingerprint", hash);
+            entry.put("status", response.getStatusCode().value());
+            entry.set("body", objectMapper.valueToTree(response.getBody()));
+            redisTemplate.opsForValue().set(redisKey, objectMapper.writeValueAsString(entry), Duration.ofHours(ttlHours));
+        } catch (Exception e) {
+            logger.warn("Could not store idempotent response for {}: {}", redisKey, e.getMessage());
+            forget(redisKey);
+        }
+    }
+
+    private void forget(String redisKey) {
+        try {
+            redisTemplate.delete(redisKey);
+        } catch (Exception e) {
+            logger.warn("Could not release idempotency key {}: {}", redisKey, e.getMessage());
+        }
+    }
+
+    private String claim(String hash) {
+        return objectMapper.createObjectNode().put("fingerprint", hash).toString();
+    }
+
+    private String hash(Object fingerprint) {
+        try {
+            byte[] payload = fingerprint instanceof String
+                ? ((String) fingerprint).getBytes(StandardCharsets.UTF_8)
+                : objectMapper.writeValueAsBytes(fingerprint);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(payload));
+        } catch (NoSuchAlgorithmException | com.fasterxml.jackson.core.JsonProcessingException e) {
+            throw new IllegalStateException("Could not fingerprint request", e);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.tiora.mob.service;
+
+import com.tiora.mob.entity.EmployeeLeave;
+import com.tiora.mob.repository.EmployeeLeaveRepository;
+import com.tiora.mob.util.LeaveCalendar;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cached approved-leave calendars per employee.
+ * A calendar holds the approved leaves that had not ended when it was loaded; lookups before
+ * that horizon go to the database. Entries expire after a TTL, and are reloaded once the employee's
+ * shared version ({@link CacheVersionService}) moves: a barber_status_changed event (leave approved or
+ * cancelled on the web backend) bumps it on whichever instance consumes it.
+ */
+@Service
+public class LeaveCalendarService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaveCalendarService.class);
+    private static final String CACHE = "leave-calendar";
+
+    @Autowired
+    private EmployeeLeaveRepository employeeLeaveRepository;
+
+    @Autowired
+    private CacheVersionService cacheVersionService;
+
+    @Value("${app.leave-calendar.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final Map<Long, CachedCalendar> calendars = new ConcurrentHashMap<>();
+
+    public boolean isOnLeave(Long employeeId, LocalDate day) {
+        return calendarCovering(employeeId, day, day).isOnLeave(day);
+    }
+
+    /**
+     * Approved leave days of the employee within the inclusive range [from, to].
+     */
+    public Set<LocalDate> leaveDaysBetween(Long employeeId, LocalDate from, LocalDate to) {
+        return new HashSet<>(calendarCovering(employeeId, from, to).leaveDaysBetween(from, to));
+    }
+
+    /**
+     * The subset of the given employees on approved leave on {@code day}.
+     * Calendars missing from the cache are loaded together in one query.
+     */
+    public Set<Long> employeesOnLeave(List<Long> employeeIds, LocalDate day) {
+        LocalDate today = LocalDate.now();
+        if (day.isBefore(today)) {
+            Set<Long> onLeave = new HashSet<>();
+            for (EmployeeLeave leave : employeeLeaveRepository.findByEmployeeIdInAndStatusOverlapping(
+                    employeeIds, EmployeeLeave.LeaveStatus.APPROVED, day, day)) {
+                onLeave.add(leave.getEmployee().getEmployeeId());
+            }
+            return onLeave;
+        }
+        long now = System.currentTimeMillis();
+        List<String> versions = cacheVersionService.current(CACHE, employeeIds);
+        List<Long> missing = new ArrayList<>();
+        Map<Long, String> missingVersions = new HashMap<>();
+        for (int i = 0; i < employeeIds.size(); i++) {
+            Long employeeId = employeeIds.get(i);
+            CachedCalendar cached = calendars.get(employeeId);
+            if (cached == null || cached.expiresAt < now || CacheVersionService.isStale(cached.version, versions.get(i))) {
+                missing.add(employeeId);
+                missingVersions.put(employeeId, versions.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Long, List<EmployeeLeave>> byEmployee = new HashMap<>();
+            for (EmployeeLeave leave : employeeLeaveRepository.findByEmployeeIdInAndStatusEndingFrom(
+                    missing, EmployeeLeave.LeaveStatus.APPROVED, today)) {
+                byEmployee.computeIfAbsent(leave.getEmployee().getEmployeeId(), id -> new ArrayList<>()).add(leave);
+            }
+            for (Long employeeId : missing) {
+                calendars.put(employeeId, new CachedCalendar(LeaveCalendar.of(byEmployee.getOrDefault(employeeId, List.of())),
+                    today, missingVersions.get(employeeId), now + ttlSeconds * 1000));
+            }
+        }
+        Set<Long> onLeave = new HashSet<>();
+        for (Long employeeId : employeeIds) {
+            CachedCalendar cached = calendars.get(employeeId);
+            if (cached != null && cached.calendar.isOnLeave(day)) {
+                onLeave.add(employeeId);
+            }
+        }
+        return onLeave;
+    }
+
+    /**
+     * Drop the employee's calendar here and, through its shared version, on every other instance.
+     */
+    public void evict(Long employeeId) {
+        if (employeeId == null) {
+            return;
+        }
+        cacheVersionService.bump(CACHE, employeeId);
+        if (calendars.remove(employeeId) != null) {
+            logger.debug("Evicted leave calendar for employee {}", employeeId);
+        }
+    }
+
+    private LeaveCalendar calendarCovering(Long employeeId, LocalDate from, LocalDate to) {
+        long now = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        if (from.isBefore(today)) {
+            // Past dates are outside what we cache; answer straight from the bounded range query
+            return LeaveCalendar.of(employeeLeaveRepository.findByEmployeeIdAndStatusOverlapping(
+                employeeId, EmployeeLeave.LeaveStatus.APPROVED, from, to));
+        }
+        // Read before loading: an approval landing during the load leaves the copy stale for the next read
+        String version = cacheVersionService.current(CACHE, employeeId);
+        CachedCalendar cached = calendars.get(employeeId);
+        if (cached != null && cached.expiresAt >= now && !from.isBefore(cached.horizon)
+                && !CacheVersionService.isStale(cached.version, version)) {
+            return cached.calendar;
+        }
+        LeaveCalendar calendar = LeaveCalendar.of(employeeLeaveRepository.findByEmployeeIdAndStatusEndingFrom(
+            employeeId, EmployeeLeave.LeaveStatus.APPROVED, today));
+        calendars.put(employeeId, new CachedCalendar(calendar, today, version, now + ttlSeconds * 1000));
+        return calendar;
+    }
+
+    private static final class CachedCalendar {
+        private final LeaveCalendar calendar;
+        private final LocalDate horizon;
+        private final String version;
+        private final long expiresAt;
+
+        private CachedCalendar(LeaveCalendar calendar, LocalDate horizon, String version, long expiresAt) {
+            this.calendar = calendar;
+            this.horizon = horizon;
+            this.version = version;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
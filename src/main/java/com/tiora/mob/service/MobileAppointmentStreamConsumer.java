@@ -1,22 +1,17 @@
 package com.tiora.mob.service;
 
 import lombok.extern.slf4j.Slf4j;
+import com.tiora.mob.dto.StreamEventEnvelope;
+import com.tiora.mob.util.KeyPartitionedExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.connection.stream.Consumer;
-import org.springframework.data.redis.connection.stream.MapRecord;
 import org.springframework.data.redis.connection.stream.ReadOffset;
-import org.springframework.data.redis.connection.stream.StreamOffset;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.data.redis.connection.stream.RecordId;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
-import java.time.Duration;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.CompletableFuture;
+import jakarta.annotation.PreDestroy;
 
 @Service
 @Slf4j
@@ -33,90 +28,77 @@ public class MobileAppointmentStreamConsumer {
     private String consumerName;
 
     @Autowired
-    @Qualifier("customStringRedisTemplate")
-    private RedisTemplate<String, String> redisTemplate;
-    private volatile boolean consuming = false;
+    private TimeSlotCacheService timeSlotCacheService;
 
-    @PostConstruct
-    public void init() {
-        // Create consumer group if it doesn't exist
-        createConsumerGroupIfNotExists();
-        // Start consuming messages asynchronously (don't block startup)
-        CompletableFuture.runAsync(() -> {
-            try {
-                startConsuming();
-            } catch (Exception e) {
-                log.error("Failed to start consuming appointment stream: {}", e.getMessage(), e);
-            }
-        });
-    }
+    @Autowired
+    private AvailabilityMaskService availabilityMaskService;
 
-    private void createConsumerGroupIfNotExists() {
-        try {
-            // Create consumer group - correct parameter order: key, readOffset, group
-            redisTemplate.opsForStream()
-                .createGroup(appointmentStreamKey, ReadOffset.from("0"), consumerGroup);
-            log.info("Created consumer group: {} for stream: {}", consumerGroup, appointmentStreamKey);
-        } catch (Exception e) {
-            log.debug("Consumer group {} already exists for stream {}: {}", 
-                     consumerGroup, appointmentStreamKey, e.getMessage());
-        }
-    }
+    @Autowired
+    private ServiceCatalogService serviceCatalogService;
 
-    public void startConsuming() {
-        consuming = true;
-        log.info("Starting to consume messages from stream: {} with consumer: {}", appointmentStreamKey, consumerName);
-
-        while (consuming) {
-            try {
-                // Use consumer group reading with '>' to get new messages with timeout
-                List<MapRecord<String, Object, Object>> messages = redisTemplate.opsForStream()
-                    .read(Consumer.from(consumerGroup, consumerName),
-                          org.springframework.data.redis.connection.stream.StreamReadOptions.empty().block(Duration.ofSeconds(2)),
-                          StreamOffset.create(appointmentStreamKey, ReadOffset.from(">")));
-
-                for (MapRecord<String, Object, Object> message : messages) {
-                    processMessage(message);
-                    
-                    // Acknowledge the message
-                    redisTemplate.opsForStream().acknowledge(appointmentStreamKey, consumerGroup, message.getId());
-                }
+    @Autowired
+    private LeaveCalendarService leaveCalendarService;
+
+    @Autowired
+    private com.tiora.mob.repository.AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private StreamConsumerService streamConsumerService;
+
+    @Autowired
+    private io.micrometer.core.instrument.MeterRegistry meterRegistry;
+
+    // Platform or virtual threads, see ThreadingConfig
+    @Autowired
+    @Qualifier("streamConsumerThreadFactory")
+    private java.util.concurrent.ThreadFactory streamConsumerThreadFactory;
+
+    @Value("${app.streams.appointment-events.lanes:4}")
+    private int laneCount;
 
-                // Poll every 2 seconds
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                log.info("Consumer interrupted, stopping...");
-                consuming = false;
-                Thread.currentThread().interrupt();
-                break;
-            } catch (Exception e) {
-                log.error("Error consuming appointment messages: {}", e.getMessage(), e);
+    @Value("${app.streams.appointment-events.lane-capacity:100}")
+    private int laneCapacity;
+
+    private KeyPartitionedExecutor lanes;
+
+    @PostConstruct
+    public void init() {
+        lanes = new KeyPartitionedExecutor("appointment-events", laneCount, laneCapacity,
+            streamConsumerThreadFactory, meterRegistry);
+        // Reads, acknowledgements and pending-entry recovery are handled by the shared container.
+        // Events of one salon keep their order on one lane; a full lane holds up the next read.
+        streamConsumerService.registerDeferred("appointment-stream-consumer", appointmentStreamKey, consumerGroup,
+            consumerName, ReadOffset.from("0"), (id, event, completion) -> lanes.submit(partitionKey(event), () -> {
                 try {
-                    Thread.sleep(5000); // Wait 5 seconds before retrying
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    break;
+                    processMessage(id, event);
+                } catch (RuntimeException e) {
+                    completion.failed();
+                    throw e;
                 }
-            }
-        }
+                completion.done();
+            }));
+    }
 
-        log.info("Stopped consuming messages from stream: {}", appointmentStreamKey);
+    @PreDestroy
+    public void shutdown() {
+        if (lanes != null) {
+            lanes.shutdown(10_000);
+        }
     }
 
-    public void stopConsuming() {
-        consuming = false;
-        log.info("Stopping message consumption...");
+    private static String partitionKey(StreamEventEnvelope event) {
+        return event.getSalonId() != null ? "salon:" + event.getSalonId()
+            : event.getAppointmentId() != null ? String.valueOf(event.getAppointmentId()) : null;
     }
 
-    private void processMessage(MapRecord<String, Object, Object> message) {
+    private void processMessage(RecordId id, StreamEventEnvelope event) {
         try {
-            Map<Object, Object> fields = message.getValue();
-            log.info("Raw message fields: {}", fields);
-            String messageType = (String) fields.get("messageType");
-            String sourceSystem = (String) fields.get("sourceSystem");
+            log.info("Received event: {}", event);
+            String messageType = event.getType();
+            String sourceSystem = event.getSourceSystem();
 
             if (messageType == null || sourceSystem == null) {
-                log.error("Missing required fields in message: messageType={}, sourceSystem={}");
+                log.error("Missing required fields in message {}: messageType={}, sourceSystem={}", id, messageType, sourceSystem);
                 return;
             }
 
@@ -124,63 +106,95 @@ public class MobileAppointmentStreamConsumer {
 
             switch (messageType) {
                 case "appointment_updated":
-                    handleAppointmentUpdatedFromWeb(fields);
+                    handleAppointmentUpdatedFromWeb(event);
                     break;
                 case "barber_status_changed":
-                    handleBarberStatusChanged(fields);
+                    handleBarberStatusChanged(event);
                     break;
                 case "service_availability_changed":
-                    handleServiceAvailabilityChanged(fields);
+                    handleServiceAvailabilityChanged(event);
                     break;
                 case "data_sync_required":
-                    handleDataSyncRequired(fields);
+                    handleDataSyncRequired(event);
                     break;
                 default:
                     log.info("Received unhandled message type: {} from web backend", messageType);
             }
-        } catch (Exception e) {
-            log.error("Error processing message {}: {}", message.getId(), e.getMessage(), e);
+        } catch (RuntimeException e) {
+            log.error("Error processing message {}: {}", id, e.getMessage());
+            throw e;
         }
     }
 
-    private void handleAppointmentUpdatedFromWeb(Map<Object, Object> fields) {
-        String appointmentId = (String) fields.get("appointment_id");
-        String salonId = (String) fields.get("salon_id");
+    private void handleAppointmentUpdatedFromWeb(StreamEventEnvelope event) {
+        Long appointmentId = event.getAppointmentId();
+        Long salonId = event.getSalonId();
         
         log.info("Appointment {} updated from web backend for salon {}", appointmentId, salonId);
+
+        // The barber's day changed on the web side, drop its cached time slots
+        Long changedBarber = event.getBarberId();
+        String appointmentDate = event.attribute("appointmentDate");
+        if (changedBarber != null && appointmentDate != null && appointmentDate.length() >= 10) {
+            java.time.LocalDate changedDay = java.time.LocalDate.parse(appointmentDate.substring(0, 10));
+            timeSlotCacheService.evict(changedBarber, changedDay);
+            availabilityMaskService.invalidate(changedBarber, changedDay);
+        }
+        if (appointmentId != null) {
+            appointmentRepository.findById(appointmentId).ifPresent(appointment -> {
+                if (appointment.getEmployee() != null && appointment.getAppointmentDate() != null) {
+                    timeSlotCacheService.evict(appointment.getEmployee().getEmployeeId(),
+                        appointment.getAppointmentDate().toLocalDate());
+                    availabilityMaskService.invalidate(appointment.getEmployee().getEmployeeId(),
+                        appointment.getAppointmentDate().toLocalDate());
+                }
+            });
+        }
         
         // TODO: Update local mobile backend data
         // TODO: Notify mobile apps if needed
         // Example: appointmentService.syncAppointmentFromWeb(appointmentId, salonId);
     }
 
-    private void handleBarberStatusChanged(Map<Object, Object> fields) {
-        String barberId = (String) fields.get("barber_id");
-        String salonId = (String) fields.get("salon_id");
-        String data = (String) fields.get("data");
+    private void handleBarberStatusChanged(StreamEventEnvelope event) {
+        Long barberId = event.getBarberId();
+        Long salonId = event.getSalonId();
         
-        log.info("Barber {} status changed from web backend for salon {} - data: {}", barberId, salonId, data);
+        log.info("Barber {} status changed from web backend for salon {} - data: {}", barberId, salonId, event.getData());
+
+        // Leave approvals and cancellations arrive this way; reload the barber's leave calendar on next use
+        if (barberId != null) {
+            leaveCalendarService.evict(barberId);
+        }
         
         // TODO: Update barber availability in mobile backend
         // Example: barberService.updateBarberStatusFromWeb(barberId, salonId, data);
     }
 
-    private void handleServiceAvailabilityChanged(Map<Object, Object> fields) {
-        String salonId = (String) fields.get("salon_id");
-        String branchId = (String) fields.get("branch_id");
-        String data = (String) fields.get("data");
+    private void handleServiceAvailabilityChanged(StreamEventEnvelope event) {
+        Long salonId = event.getSalonId();
+        Long branchId = event.getBranchId();
         
         log.info("Service availability changed from web backend for salon {} branch {} - data: {}", 
-                salonId, branchId, data);
+                salonId, branchId, event.getData());
+
+        // Durations, prices or status may have changed; the catalog reloads on next use
+        if (salonId != null) {
+            serviceCatalogService.evict(salonId);
+        }
         
         // TODO: Update service availability in mobile backend
         // Example: serviceService.updateServiceAvailabilityFromWeb(salonId, branchId, data);
     }
 
-    private void handleDataSyncRequired(Map<Object, Object> fields) {
-        String salonId = (String) fields.get("salon_id");
+    private void handleDataSyncRequired(StreamEventEnvelope event) {
+        Long salonId = event.getSalonId();
         
         log.info("Data sync required from web backend for salon {}", salonId);
+
+        if (salonId != null) {
+            serviceCatalogService.evict(salonId);
+        }
         
         // TODO: Trigger data synchronization
         // Example: syncService.performFullSyncForSalon(salonId);
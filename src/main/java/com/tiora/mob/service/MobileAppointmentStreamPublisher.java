@@ -1,17 +1,24 @@
 package com.tiora.mob.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tiora.mob.dto.AppointmentEventDto.EventType;
+import com.tiora.mob.dto.StreamEventEnvelope;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -24,55 +31,71 @@ public class MobileAppointmentStreamPublisher {
 
     public void publishCustomerNotification(Long customerId, Long appointmentId, String status, String message) {
         try {
-            Map<String, String> fields = new HashMap<>();
-            fields.put("messageType", "customer_appointment_notification");
-            fields.put("eventType", status);
-            fields.put("timestamp", LocalDateTime.now().toString());
-            fields.put("customerId", String.valueOf(customerId));
-            fields.put("appointmentId", String.valueOf(appointmentId));
-            fields.put("message", message);
-            Object messageId = redisTemplate.opsForStream().add(customerStreamKey, fields);
+            StreamEventEnvelope event = buildCustomerNotificationEvent(customerId, appointmentId, status, message);
+            Object messageId = streamRetentionService.add(redisTemplate, customerStreamKey, streamEventCodec.encode(event));
             log.info("Published customer notification with ID: {} for appointment: {}", messageId, appointmentId);
         } catch (Exception e) {
             log.error("Error publishing customer notification for appointment {}: {}", appointmentId, e.getMessage(), e);
         }
     }
+    // Events are built separately from the XADD so building and encoding can be benchmarked without Redis
+    StreamEventEnvelope buildCustomerNotificationEvent(Long customerId, Long appointmentId, String status, String message) {
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("message", message);
+        return StreamEventEnvelope.builder()
+            .type("customer_appointment_notification")
+            .eventType(status)
+            .timestamp(System.currentTimeMillis())
+            .customerId(customerId)
+            .appointmentId(appointmentId)
+            .attributes(attributes)
+            .build();
+    }
+
     public void publishAppointmentUpdated(Long salonId, Long appointmentId, String oldStatus, String newStatus) {
         try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("oldStatus", oldStatus != null ? oldStatus : "");
-            data.put("newStatus", newStatus != null ? newStatus : "");
-            data.put("updatedBy", "mobile_backend");
-            data.put("updateReason", "status_change");
-
-            Map<String, String> fields = new HashMap<>();
-            fields.put("messageType", "appointment_updated");
-            // Use eventType COMPLETED or CANCELLED based on newStatus
-            if ("COMPLETED".equalsIgnoreCase(newStatus)) {
-                fields.put("eventType", "COMPLETED");
-            } else if ("CANCELLED".equalsIgnoreCase(newStatus)) {
-                fields.put("eventType", "CANCELLED");
-            } else {
-                fields.put("eventType", EventType.UPDATED.name());
-            }
-            fields.put("source", "mobile_backend");
-            fields.put("timestamp", LocalDateTime.now().toString());
-            fields.put("salonId", String.valueOf(salonId));
-            fields.put("appointmentId", String.valueOf(appointmentId));
-            fields.put("priority", "NORMAL");
-            fields.put("requiresNotification", "true");
-            fields.put("data", toJson(data));
-
-            log.info("Publishing UPDATED event with fields: {}", fields);
-            Object messageId = redisTemplate.opsForStream().add(appointmentStreamKey, fields);
+            StreamEventEnvelope event = buildAppointmentUpdatedEvent(salonId, appointmentId, oldStatus, newStatus);
+
+            log.info("Publishing UPDATED event: {}", event);
+            Object messageId = streamRetentionService.add(redisTemplate, appointmentStreamKey, streamEventCodec.encode(event));
             log.info("Published appointment updated message with ID: {} for appointment: {}", messageId, appointmentId);
         } catch (Exception e) {
             log.error("Error publishing appointment updated message for appointment {}: {}", appointmentId, e.getMessage(), e);
         }
     }
 
+    StreamEventEnvelope buildAppointmentUpdatedEvent(Long salonId, Long appointmentId, String oldStatus, String newStatus) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("oldStatus", oldStatus != null ? oldStatus : "");
+        data.put("newStatus", newStatus != null ? newStatus : "");
+        data.put("updatedBy", "mobile_backend");
+        data.put("updateReason", "status_change");
+
+        // Use eventType COMPLETED or CANCELLED based on newStatus
+        String eventType;
+        if ("COMPLETED".equalsIgnoreCase(newStatus)) {
+            eventType = "COMPLETED";
+        } else if ("CANCELLED".equalsIgnoreCase(newStatus)) {
+            eventType = "CANCELLED";
+        } else {
+            eventType = EventType.UPDATED.name();
+        }
+        return StreamEventEnvelope.builder()
+            .type("appointment_updated")
+            .eventType(eventType)
+            .source("mobile_backend")
+            .timestamp(System.currentTimeMillis())
+            .salonId(salonId)
+            .appointmentId(appointmentId)
+            .priority("NORMAL")
+            .requiresNotification(true)
+            .data(data)
+            .build();
+    }
+
     private final RedisTemplate<String, Object> redisTemplate;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StreamRetentionService streamRetentionService;
+    private final StreamEventCodec streamEventCodec;
 
     @Value("${salon.redis.streams.appointment-stream}")
     private String appointmentStreamKey;
@@ -83,124 +106,122 @@ public class MobileAppointmentStreamPublisher {
     public void publishAppointmentCreated(Long salonId, Long branchId, Long appointmentId, 
                                         Long customerId, Long barberId, Map<String, Object> appointmentData) {
         try {
-            Map<String, String> fields = new HashMap<>();
-            fields.put("messageType", stripQuotes("CREATED"));
-            fields.put("eventType", stripQuotes("CREATED"));
-            fields.put("sourceSystem", stripQuotes("mobile_backend"));
-            fields.put("timestamp", stripQuotes(LocalDateTime.now().toString()));
-            fields.put("salonId", stripQuotes(salonId));
-            fields.put("branchId", stripQuotes(branchId));
-            fields.put("appointmentId", stripQuotes(appointmentId));
-            fields.put("customerId", stripQuotes(customerId));
-            fields.put("barberId", stripQuotes(barberId));
-            // Add appointment_number as top-level field if present
-            if (appointmentData != null && appointmentData.get("appointment_number") != null) {
-                fields.put("appointmentNumber", stripQuotes(appointmentData.get("appointment_number")));
-            }
-            // Add more required fields from appointmentData if present
-            if (appointmentData != null) {
-                if (appointmentData.get("customer_name") != null)
-                    fields.put("customerName", stripQuotes(appointmentData.get("customer_name")));
-                if (appointmentData.get("customer_phone") != null)
-                    fields.put("customerPhone", stripQuotes(appointmentData.get("customer_phone")));
-                if (appointmentData.get("service_names") != null) {
-                    Object sn = appointmentData.get("service_names");
-                    if (sn instanceof java.util.List) {
-                        fields.put("serviceNames", stripQuotes(String.join(", ", ((java.util.List<?>) sn).stream().map(Object::toString).toArray(String[]::new))));
-                    } else {
-                        fields.put("serviceNames", stripQuotes(sn));
-                    }
+            StreamEventEnvelope event = buildAppointmentCreatedEvent(salonId, branchId, appointmentId, customerId, barberId, appointmentData);
+            log.info("Publishing CREATED event: {}", event);
+
+            // Web backend and barber streams in one round trip
+            List<BatchResult> results = publishBatch(List.of(
+                BatchEntry.of(appointmentStreamKey, event.toBuilder().source("WEB").build()),
+                BatchEntry.of(barberStreamKey, event.toBuilder().source("barber_mobile").build())));
+            String[] targets = {"web backend", "barber stream"};
+            for (int i = 0; i < targets.length; i++) {
+                BatchResult result = results.get(i);
+                if (result.isPublished()) {
+                    log.info("Published appointment created message to {} with ID: {} for appointment: {}", targets[i], result.getRecordId(), appointmentId);
+                } else {
+                    log.error("Error publishing appointment created message to {} for appointment {}: {}", targets[i], appointmentId, result.getError().getMessage());
                 }
-                if (appointmentData.get("appointment_date") != null)
-                    fields.put("appointmentTime", stripQuotes(appointmentData.get("appointment_date")));
-                if (appointmentData.get("status") != null)
-                    fields.put("status", stripQuotes(appointmentData.get("status")));
-                // Add metadata as JSON string (do not strip quotes)
-                if (appointmentData.get("metadata") != null)
-                    fields.put("metadata", objectMapper.writeValueAsString((Map<String, Object>) appointmentData.get("metadata")));
-                else
-                    fields.put("metadata", objectMapper.writeValueAsString(new HashMap<>()));
-            } else {
-                fields.put("metadata", "{}");
             }
-            fields.put("priority", stripQuotes("HIGH"));
-            fields.put("requiresNotification", stripQuotes("true"));
-            // Format data field as compact JSON (do not strip quotes)
-            fields.put("data", objectMapper.writeValueAsString(appointmentData));
-
-            // Publish to web backend stream
-            fields.put("source", stripQuotes("WEB"));
-            log.info("Publishing CREATED event with fields: {}", fields);
-            Object messageIdWeb = redisTemplate.opsForStream().add(appointmentStreamKey, fields);
-            log.info("Published appointment created message to web backend with ID: {} for appointment: {}", messageIdWeb, appointmentId);
-
-            // Publish to barber stream
-            fields.put("source", stripQuotes("barber_mobile"));
-            Object messageIdBarber = redisTemplate.opsForStream().add(barberStreamKey, fields);
-            log.info("Published appointment created message to barber stream with ID: {} for appointment: {}", messageIdBarber, appointmentId);
         } catch (Exception e) {
             log.error("Error publishing appointment created message for appointment {}: {}", appointmentId, e.getMessage(), e);
         }
 
     }
 
-    // Utility method to strip quotes from any object
-    private String stripQuotes(Object value) {
-        if (value == null) return "";
-        String str = value.toString();
-        // Remove all leading/trailing quotes (single or double) recursively
-        while (str.matches("^(\"|')+.*(\"|')+$")) {
-            str = str.replaceAll("^(\"|')+", "");
-            str = str.replaceAll("(\"|')+$", "");
-        }
-        // Unescape any escaped quotes and slashes
-        str = str.replaceAll("\\\"", "\"");
-        str = str.replaceAll("\\\\", "\\");
-        return str;
+    @SuppressWarnings("unchecked")
+    StreamEventEnvelope buildAppointmentCreatedEvent(Long salonId, Long branchId, Long appointmentId,
+                                                     Long customerId, Long barberId, Map<String, Object> appointmentData) {
+        Map<String, String> attributes = new HashMap<>();
+        Map<String, Object> metadata = new HashMap<>();
+        if (appointmentData != null) {
+            // appointment_number and the display fields are also top-level for readers of the field map
+            putIfPresent(attributes, "appointmentNumber", appointmentData.get("appointment_number"));
+            putIfPresent(attributes, "customerName", appointmentData.get("customer_name"));
+            putIfPresent(attributes, "customerPhone", appointmentData.get("customer_phone"));
+            Object serviceNames = appointmentData.get("service_names");
+            if (serviceNames instanceof List) {
+                attributes.put("serviceNames", String.join(", ", ((List<?>) serviceNames).stream().map(Object::toString).toArray(String[]::new)));
+            } else {
+                putIfPresent(attributes, "serviceNames", serviceNames);
+            }
+            putIfPresent(attributes, "appointmentTime", appointmentData.get("appointment_date"));
+            putIfPresent(attributes, "status", appointmentData.get("status"));
+            if (appointmentData.get("metadata") != null) {
+                metadata = (Map<String, Object>) appointmentData.get("metadata");
+            }
+        }
+        return StreamEventEnvelope.builder()
+            .type("CREATED")
+            .eventType("CREATED")
+            .sourceSystem("mobile_backend")
+            .timestamp(System.currentTimeMillis())
+            .salonId(salonId)
+            .branchId(branchId)
+            .appointmentId(appointmentId)
+            .customerId(customerId)
+            .barberId(barberId)
+            .priority("HIGH")
+            .requiresNotification(true)
+            .attributes(attributes)
+            .metadata(metadata)
+            .data(appointmentData)
+            .build();
+    }
+
+    private static void putIfPresent(Map<String, String> attributes, String name, Object value) {
+        if (value != null) {
+            attributes.put(name, value.toString());
+        }
     }
 
     public void publishAppointmentCancelled(Long salonId, Long appointmentId, String cancellationReason) {
         try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("cancellationReason", cancellationReason != null ? cancellationReason : "No reason provided");
-            data.put("cancelledBy", "mobile_backend");
-            data.put("cancellationTime", LocalDateTime.now().toString());
-
-            Map<String, String> fields = new HashMap<>();
-            fields.put("messageType", "appointment_updated");
-            fields.put("eventType", "CANCELLED");
-            fields.put("source", "mobile_backend");
-            fields.put("timestamp", LocalDateTime.now().toString());
-            fields.put("salonId", String.valueOf(salonId));
-            fields.put("appointmentId", String.valueOf(appointmentId));
-            fields.put("priority", "HIGH");
-            fields.put("requiresNotification", "true");
-            fields.put("data", toJson(data));
-
-            log.info("Publishing CANCELLED event with fields: {}", fields);
-            Object messageId = redisTemplate.opsForStream().add(appointmentStreamKey, fields);
+            StreamEventEnvelope event = buildAppointmentCancelledEvent(salonId, appointmentId, cancellationReason);
+
+            log.info("Publishing CANCELLED event: {}", event);
+            Object messageId = streamRetentionService.add(redisTemplate, appointmentStreamKey, streamEventCodec.encode(event));
             log.info("Published appointment cancelled message with ID: {} for appointment: {}", messageId, appointmentId);
         } catch (Exception e) {
             log.error("Error publishing appointment cancelled message for appointment {}: {}", appointmentId, e.getMessage(), e);
         }
     }
 
+    StreamEventEnvelope buildAppointmentCancelledEvent(Long salonId, Long appointmentId, String cancellationReason) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("cancellationReason", cancellationReason != null ? cancellationReason : "No reason provided");
+        data.put("cancelledBy", "mobile_backend");
+        data.put("cancellationTime", LocalDateTime.now().toString());
+
+        return StreamEventEnvelope.builder()
+            .type("appointment_updated")
+            .eventType("CANCELLED")
+            .source("mobile_backend")
+            .timestamp(System.currentTimeMillis())
+            .salonId(salonId)
+            .appointmentId(appointmentId)
+            .priority("HIGH")
+            .requiresNotification(true)
+            .data(data)
+            .build();
+    }
+
     public void publishCustomerCheckedIn(Long salonId, Long branchId, Long appointmentId, Long customerId, 
                                        Map<String, Object> checkInData) {
         try {
-            Map<String, String> fields = new HashMap<>();
-            fields.put("messageType", "customer_checked_in");
-            fields.put("sourceSystem", "customer_app");
-            fields.put("timestamp", LocalDateTime.now().toString());
-            fields.put("salonId", String.valueOf(salonId));
-            fields.put("branchId", String.valueOf(branchId != null ? branchId : ""));
-            fields.put("appointmentId", String.valueOf(appointmentId));
-            fields.put("customerId", String.valueOf(customerId));
-            fields.put("priority", "HIGH");
-            fields.put("requiresNotification", "true");
-            fields.put("data", toJson(checkInData));
-
-            Object messageId = redisTemplate.opsForStream().add(appointmentStreamKey, fields);
+            StreamEventEnvelope event = StreamEventEnvelope.builder()
+                .type("customer_checked_in")
+                .sourceSystem("customer_app")
+                .timestamp(System.currentTimeMillis())
+                .salonId(salonId)
+                .branchId(branchId)
+                .appointmentId(appointmentId)
+                .customerId(customerId)
+                .priority("HIGH")
+                .requiresNotification(true)
+                .data(checkInData)
+                .build();
+
+            Object messageId = streamRetentionService.add(redisTemplate, appointmentStreamKey, streamEventCodec.encode(event));
             log.info("Published customer checked in message with ID: {} for appointment: {}", messageId, appointmentId);
         } catch (Exception e) {
             log.error("Error publishing customer checked in message for appointment {}: {}", appointmentId, e.getMessage(), e);
@@ -214,30 +235,137 @@ public class MobileAppointmentStreamPublisher {
             data.put("barber_id", barberId != null ? barberId : "");
             data.put("status", "in_progress");
 
-            Map<String, String> fields = new HashMap<>();
-            fields.put("messageType", "customer_being_served");
-            fields.put("sourceSystem", "mobile_backend");
-            fields.put("timestamp", LocalDateTime.now().toString());
-            fields.put("salonId", String.valueOf(salonId));
-            fields.put("appointmentId", String.valueOf(appointmentId));
-            fields.put("barberId", String.valueOf(barberId != null ? barberId : ""));
-            fields.put("priority", "HIGH");
-            fields.put("requiresNotification", "true");
-            fields.put("data", toJson(data));
-
-            Object messageId = redisTemplate.opsForStream().add(appointmentStreamKey, fields);
+            StreamEventEnvelope event = StreamEventEnvelope.builder()
+                .type("customer_being_served")
+                .sourceSystem("mobile_backend")
+                .timestamp(System.currentTimeMillis())
+                .salonId(salonId)
+                .appointmentId(appointmentId)
+                .barberId(barberId)
+                .priority("HIGH")
+                .requiresNotification(true)
+                .data(data)
+                .build();
+
+            Object messageId = streamRetentionService.add(redisTemplate, appointmentStreamKey, streamEventCodec.encode(event));
             log.info("Published customer being served message with ID: {} for appointment: {}", messageId, appointmentId);
         } catch (Exception e) {
             log.error("Error publishing customer being served message for appointment {}: {}", appointmentId, e.getMessage(), e);
         }
     }
 
-    private String toJson(Map<String, Object> data) {
+    /**
+     * One entry of {@link #publishBatch}: an event and the stream it goes to, encoded with the configured codec.
+     */
+    public static final class BatchEntry {
+        private final String stream;
+        private final StreamEventEnvelope event;
+
+        private BatchEntry(String stream, StreamEventEnvelope event) {
+            this.stream = stream;
+            this.event = event;
+        }
+
+        public static BatchEntry of(String stream, StreamEventEnvelope event) {
+            return new BatchEntry(stream, event);
+        }
+
+        public String getStream() { return stream; }
+    }
+
+    /**
+     * Outcome of one {@link BatchEntry}: the id Redis assigned, or why it was not written. A rejected entry
+     * failed on its own (it did not encode, or Redis answered it with an error); otherwise the round trip failed.
+     */
+    public static final class BatchResult {
+        private final RecordId recordId;
+        private final Exception error;
+        private final boolean rejected;
+
+        private BatchResult(RecordId recordId, Exception error, boolean rejected) {
+            this.recordId = recordId;
+            this.error = error;
+            this.rejected = rejected;
+        }
+
+        static BatchResult published(RecordId recordId) {
+            return new BatchResult(recordId, null, false);
+        }
+
+        static BatchResult rejected(Exception error) {
+            return new BatchResult(null, error, true);
+        }
+
+        static BatchResult failed(Exception error) {
+            return new BatchResult(null, error, false);
+        }
+
+        public boolean isPublished() { return recordId != null; }
+        public boolean isRejected() { return rejected; }
+        public RecordId getRecordId() { return recordId; }
+        public Exception getError() { return error; }
+    }
+
+    /**
+     * XADD every entry in one pipelined round trip, each trimmed per {@link StreamRetentionService}.
+     * Returns one result per entry, in order. An entry Redis rejects fails alone; if the replies are lost
+     * (e.g. the connection drops), every entry fails, although some may have been written.
+     */
+    public List<BatchResult> publishBatch(List<BatchEntry> entries) {
+        BatchResult[] results = new BatchResult[entries.size()];
+        // Indexes of the entries that encoded, with their fields, in pipeline order
+        List<Integer> sent = new ArrayList<>(entries.size());
+        List<Map<String, ?>> payloads = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            BatchEntry entry = entries.get(i);
+            try {
+                payloads.add(streamEventCodec.encode(entry.event));
+                sent.add(i);
+            } catch (RuntimeException e) {
+                results[i] = BatchResult.rejected(e);
+            }
+        }
+        if (sent.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        List<Object> replies;
         try {
-            return objectMapper.writeValueAsString(data);
-        } catch (Exception e) {
-            log.error("Error converting data to JSON: {}", e.getMessage());
-            return "{}";
+            replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int j = 0; j < sent.size(); j++) {
+                    streamRetentionService.add(connection, redisTemplate, entries.get(sent.get(j)).stream, payloads.get(j));
+                }
+                return null;
+            });
+        } catch (RedisPipelineException e) {
+            // Every command was answered; the rejected ones hold their exception
+            replies = e.getPipelineResult();
+        } catch (RuntimeException e) {
+            for (int i : sent) {
+                results[i] = BatchResult.failed(e);
+            }
+            return Arrays.asList(results);
+        }
+
+        for (int j = 0; j < sent.size(); j++) {
+            results[sent.get(j)] = toResult(j < replies.size() ? replies.get(j) : null);
+        }
+        return Arrays.asList(results);
+    }
+
+    private static BatchResult toResult(Object reply) {
+        if (reply instanceof RecordId recordId) {
+            return BatchResult.published(recordId);
+        }
+        if (reply instanceof String id) {
+            return BatchResult.published(RecordId.of(id));
+        }
+        if (reply instanceof byte[] id) {
+            return BatchResult.published(RecordId.of(new String(id, StandardCharsets.UTF_8)));
+        }
+        if (reply instanceof Exception e) {
+            return BatchResult.rejected(e);
         }
+        return BatchResult.failed(new IllegalStateException("Unexpected XADD reply: " + reply));
     }
 }
@@ -0,0 +1,108 @@
+package com.tiora.mob.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Cluster-wide leases for scheduled jobs that must run on one instance at a time.
+ * A lease is a Redis key {@code lease:{name}} set with NX and a TTL; every grant is numbered from
+ * {@code lease:{name}:generation}, which only ever grows. A holder checks {@link #isHeld} before
+ * each unit of work, so an instance that stalled past its TTL stops instead of duplicating the new
+ * holder's work.
+ * <p>
+ * This is not fencing: the generation is never checked by the database, and a holder that stalls
+ * between {@link #isHeld} and its write can still overlap the next holder. A lease only saves
+ * duplicate work; jobs must stay correct when two instances run at once.
+ */
+@Service
+public class SchedulerLeaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchedulerLeaseService.class);
+    private static final String KEY_PREFIX = "lease:";
+
+    // Returns the grant's generation, or 0 when someone else holds the lease
+    private static final DefaultRedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then " +
+        "  local token = redis.call('INCR', KEYS[2]) " +
+        "  redis.call('SET', KEYS[1], ARGV[1] .. ':' .. token, 'PX', ARGV[2]) " +
+        "  return token " +
+        "end " +
+        "return 0",
+        Long.class);
+
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+        "return 0",
+        Long.class);
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Autowired
+    @Qualifier("customStringRedisTemplate")
+    private RedisTemplate<String, String> redisTemplate;
+
+    public static final class Lease {
+        private final String name;
+        private final String value;
+        private final long generation;
+
+        private Lease(String name, String value, long generation) {
+            this.name = name;
+            this.value = value;
+            this.generation = generation;
+        }
+
+        public String getName() { return name; }
+        public long getGeneration() { return generation; }
+    }
+
+    /**
+     * Take the lease if nobody holds it. Returns null when it is held elsewhere or Redis is unavailable.
+     */
+    public Lease tryAcquire(String name, Duration ttl) {
+        try {
+            Long token = redisTemplate.execute(ACQUIRE_SCRIPT, List.of(key(name), key(name) + ":generation"),
+                instanceId, String.valueOf(ttl.toMillis()));
+            if (token == null || token == 0L) {
+                return null;
+            }
+            return new Lease(name, instanceId + ":" + token, token);
+        } catch (Exception e) {
+            logger.warn("Could not acquire lease {}: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Whether this lease is still the current one (not expired and not taken over).
+     */
+    public boolean isHeld(Lease lease) {
+        try {
+            return lease.value.equals(redisTemplate.opsForValue().get(key(lease.name)));
+        } catch (Exception e) {
+            logger.warn("Could not check lease {}: {}", lease.name, e.getMessage());
+            return false;
+        }
+    }
+
+    public void release(Lease lease) {
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(key(lease.name)), lease.value);
+        } catch (Exception e) {
+            logger.warn("Could not release lease {}: {}", lease.name, e.getMessage());
+        }
+    }
+
+    private static String key(String name) {
+        return KEY_PREFIX + name;
+    }
+}
@@ -0,0 +1,174 @@
+package com.tiora.mob.service;
+
+import com.tiora.mob.entity.Service;
+import com.tiora.mob.exception.ResourceNotFoundException;
+import com.tiora.mob.repository.ServiceCatalogView;
+import com.tiora.mob.repository.ServiceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory catalog of each salon's services (duration, price, gender availability, status).
+ * A salon's catalog is loaded with a single query on first use and kept until it expires or the
+ * salon's shared version ({@link CacheVersionService}) moves, which a service_availability_changed
+ * event on any instance does. Resolving the services of a booking or a slot lookup then costs one
+ * Redis GET instead of a database query.
+ */
+@org.springframework.stereotype.Service
+public class ServiceCatalogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServiceCatalogService.class);
+    private static final String CACHE = "service-catalog";
+
+    @Autowired
+    private ServiceRepository serviceRepository;
+
+    @Autowired
+    private CacheVersionService cacheVersionService;
+
+    @Value("${app.service-catalog.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private final Map<Long, SalonCatalog> catalogs = new ConcurrentHashMap<>();
+
+    /**
+     * Services of the salon keyed by id.
+     */
+    public Map<Long, CatalogEntry> getCatalog(Long salonId) {
+        SalonCatalog catalog = catalogs.get(salonId);
+        long now = System.currentTimeMillis();
+        // Read before loading: a change landing during the load leaves the copy stale for the next read
+        String version = cacheVersionService.current(CACHE, salonId);
+        if (catalog == null || catalog.expiresAt < now || CacheVersionService.isStale(catalog.version, version)) {
+            catalog = load(salonId, version, now);
+            catalogs.put(salonId, catalog);
+        }
+        return catalog.entries;
+    }
+
+    /**
+     * Resolve the services of a comma-separated id list, in request order.
+     */
+    public List<CatalogEntry> resolve(Long salonId, String serviceIds) {
+        List<Long> ids = new ArrayList<>();
+        for (String sid : serviceIds.split(",")) {
+            ids.add(Long.parseLong(sid.trim()));
+        }
+        return resolve(salonId, ids);
+    }
+
+    public List<CatalogEntry> resolve(Long salonId, Collection<Long> serviceIds) {
+        Map<Long, CatalogEntry> catalog = getCatalog(salonId);
+        List<CatalogEntry> entries = new ArrayList<>(serviceIds.size());
+        for (Long serviceId : serviceIds) {
+            CatalogEntry entry = catalog.get(serviceId);
+            if (entry == null) {
+                throw new ResourceNotFoundException("Service not found with ID: " + serviceId);
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    public static int totalDuration(List<CatalogEntry> entries) {
+        int total = 0;
+        for (CatalogEntry entry : entries) {
+            total += entry.getDurationMinutes();
+        }
+        return total;
+    }
+
+    public static BigDecimal totalPrice(List<CatalogEntry> entries) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (CatalogEntry entry : entries) {
+            total = total.add(entry.getPrice());
+        }
+        return total;
+    }
+
+    /**
+     * Drop the salon's catalog here and, through its shared version, on every other instance.
+     */
+    public void evict(Long salonId) {
+        if (salonId == null) {
+            return;
+        }
+        cacheVersionService.bump(CACHE, salonId);
+        if (catalogs.remove(salonId) != null) {
+            logger.info("Evicted service catalog for salon {}", salonId);
+        }
+    }
+
+    public void evictAll() {
+        catalogs.clear();
+    }
+
+    private SalonCatalog load(Long salonId, String version, long now) {
+        List<ServiceCatalogView> rows = serviceRepository.findCatalogBySalonId(salonId);
+        Map<Long, CatalogEntry> entries = new HashMap<>(rows.size() * 2);
+        for (ServiceCatalogView row : rows) {
+            entries.put(row.getId(), new CatalogEntry(row.getId(), row.getName(),
+                row.getDurationMinutes() != null ? row.getDurationMinutes() : 0,
+                row.getPrice() != null ? row.getPrice() : BigDecimal.ZERO,
+                row.getGenderAvailability(), row.getStatus()));
+        }
+        logger.debug("Loaded {} services into the catalog for salon {}", entries.size(), salonId);
+        return new SalonCatalog(Collections.unmodifiableMap(entries), version, now + ttlSeconds * 1000);
+    }
+
+    private static final class SalonCatalog {
+        private final Map<Long, CatalogEntry> entries;
+        private final String version;
+        private final long expiresAt;
+
+        private SalonCatalog(Map<Long, CatalogEntry> entries, String version, long expiresAt) {
+            this.entries = entries;
+            this.version = version;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Immutable snapshot of one service.
+     */
+    public static final class CatalogEntry {
+        private final Long id;
+        private final String name;
+        private final int durationMinutes;
+        private final BigDecimal price;
+        private final Service.GenderAvailability genderAvailability;
+        private final Service.ServiceStatus status;
+
+        public CatalogEntry(Long id, String name, int durationMinutes, BigDecimal price,
+                            Service.GenderAvailability genderAvailability, Service.ServiceStatus status) {
+            this.id = id;
+            this.name = name;
+            this.durationMinutes = durationMinutes;
+            this.price = price;
+            this.genderAvailability = genderAvailability;
+            this.status = status;
+        }
+
+        public Long getId() { return id; }
+        public String getName() { return name; }
+        public int getDurationMinutes() { return durationMinutes; }
+        public BigDecimal getPrice() { return price; }
+        public Service.GenderAvailability getGenderAvailability() { return genderAvailability; }
+        public Service.ServiceStatus getStatus() { return status; }
+
+        public boolean isActive() {
+            return status == Service.ServiceStatus.ACTIVE;
+        }
+    }
+}
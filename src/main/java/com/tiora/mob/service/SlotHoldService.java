@@ -0,0 +1,290 @@
+package com.tiora.mob.service;
+
+import com.tiora.mob.dto.request.SlotHoldRequest;
+import com.tiora.mob.dto.response.SlotHoldResponse;
+import com.tiora.mob.entity.Appointment;
+import com.tiora.mob.exception.SlotHoldLimitException;
+import com.tiora.mob.exception.SlotTakenException;
+import com.tiora.mob.repository.AppointmentRepository;
+import com.tiora.mob.util.DayOccupancy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Short-lived slot reservations taken while a customer checks out.
+ * Holds live in one Redis hash per barber and day ({@code slot-hold:{barberId}:{date}}),
+ * field = hold id, value = {@code startMinute:endMinute:expiresAtMillis:customerId}, and in a sorted set
+ * per customer ({@code slot-hold:customer:{customerId}}, hold id scored by expiry) that caps how many
+ * live holds one customer may have. Placing a hold is a single Lua script, so two customers racing for
+ * the same slot cannot both get it. Held ranges are treated as occupied by the availability engine.
+ */
+@Service
+public class SlotHoldService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlotHoldService.class);
+    private static final String KEY_PREFIX = "slot-hold:";
+    private static final String CUSTOMER_KEY_PREFIX = KEY_PREFIX + "customer:";
+
+    // Rejects a customer at the hold limit (-1), drops expired holds, rejects an overlap with a live one (0),
+    // otherwise stores the hold (1) and stretches the key TTLs so they outlive their longest hold.
+    private static final DefaultRedisScript<Long> HOLD_SCRIPT = new DefaultRedisScript<>(
+        "local from = tonumber(ARGV[2]) " +
+        "local to = tonumber(ARGV[3]) " +
+        "local now = tonumber(ARGV[4]) " +
+        "redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', now) " +
+        "if redis.call('ZCARD', KEYS[2]) >= tonumber(ARGV[8]) then " +
+        "  return -1 " +
+        "end " +
+        "local entries = redis.call('HGETALL', KEYS[1]) " +
+        "for i = 1, #entries, 2 do " +
+        "  local s, e, exp = string.match(entries[i + 1], '^(%d+):(%d+):(%d+)') " +
+        "  if tonumber(exp) <= now then " +
+        "    redis.call('HDEL', KEYS[1], entries[i]) " +
+        "  elseif tonumber(s) < to and tonumber(e) > from then " +
+        "    return 0 " +
+        "  end " +
+        "end " +
+        "redis.call('HSET', KEYS[1], ARGV[1], ARGV[2] .. ':' .. ARGV[3] .. ':' .. ARGV[5] .. ':' .. ARGV[7]) " +
+        "if redis.call('PTTL', KEYS[1]) < tonumber(ARGV[6]) then " +
+        "  redis.call('PEXPIRE', KEYS[1], ARGV[6]) " +
+        "end " +
+        "redis.call('ZADD', KEYS[2], ARGV[5], ARGV[1]) " +
+        "redis.call('PEXPIRE', KEYS[2], ARGV[6]) " +
+        "return 1",
+        Long.class);
+
+    // Removes the hold only when it belongs to the customer
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+        "local value = redis.call('HGET', KEYS[1], ARGV[1]) " +
+        "if not value or string.match(value, ':([^:]*)$') ~= ARGV[2] then " +
+        "  return 0 " +
+        "end " +
+        "redis.call('HDEL', KEYS[1], ARGV[1]) " +
+        "redis.call('ZREM', KEYS[2], ARGV[1]) " +
+        "return 1",
+        Long.class);
+
+    @Autowired
+    @Qualifier("customStringRedisTemplate")
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private ServiceCatalogService serviceCatalogService;
+
+    @Autowired
+    private AuthService authService;
+
+    // Same window the unpaid-appointment sweep gives a customer to pay
+    @Value("${app.slot-hold.ttl-minutes:${app.unpaid-appointment-cancel-minutes:5}}")
+    private int holdTtlMinutes;
+
+    @Value("${app.slot-hold.max-per-customer:2}")
+    private int maxHoldsPerCustomer;
+
+    /**
+     * Hold a slot for the customer the token belongs to. 409 when the slot is booked or held,
+     * 429 when the customer already has {@code app.slot-hold.max-per-customer} live holds.
+     */
+    public SlotHoldResponse hold(String token, SlotHoldRequest request) {
+        Long customerId = authService.getCustomerIdFromToken(token);
+        int duration = ServiceCatalogService.totalDuration(
+            serviceCatalogService.resolve(request.getSalonId(), request.getServiceIds()));
+        LocalDateTime start = request.getStartTime();
+        LocalDateTime end = start.plusMinutes(duration);
+        LocalDate day = start.toLocalDate();
+        if (duration <= 0 || (end.toLocalDate().isAfter(day) && !end.equals(day.plusDays(1).atStartOfDay()))) {
+            throw new IllegalArgumentException("A slot hold must start and end on the same day");
+        }
+        if (!appointmentRepository.findOverlappingSlots(request.getBarberId(), start.minusDays(1), start, end,
+                Appointment.AppointmentStatus.CANCELLED).isEmpty()) {
+            throw new SlotTakenException("This time slot is already booked");
+        }
+
+        String holdId = UUID.randomUUID().toString();
+        long now = System.currentTimeMillis();
+        long ttlMillis = holdTtlMinutes * 60_000L;
+        int from = DayOccupancy.floorMinute(start.toLocalTime());
+        int to = end.toLocalDate().isAfter(day) ? DayOccupancy.MINUTES_PER_DAY : DayOccupancy.ceilMinute(end.toLocalTime());
+        Long placed = redisTemplate.execute(HOLD_SCRIPT, List.of(key(request.getBarberId(), day), customerKey(customerId)),
+            holdId, String.valueOf(from), String.valueOf(to), String.valueOf(now),
+            String.valueOf(now + ttlMillis), String.valueOf(ttlMillis),
+            String.valueOf(customerId), String.valueOf(maxHoldsPerCustomer));
+        if (placed != null && placed == -1L) {
+            throw new SlotHoldLimitException("You already hold " + maxHoldsPerCustomer
+                + " time slots; book or release one before holding another");
+        }
+        if (placed == null || placed == 0L) {
+            throw new SlotTakenException("This time slot is being booked by another customer");
+        }
+        logger.info("Slot hold {} placed for barber {} {} - {} by customer {}", holdId, request.getBarberId(), start, end, customerId);
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(now + ttlMillis), ZoneId.systemDefault());
+        return new SlotHoldResponse(holdId, request.getBarberId(), start, end, expiresAt);
+    }
+
+    /**
+     * Release a hold of the customer the token belongs to. Holds of other customers and unknown
+     * or expired holds are left alone.
+     */
+    public void release(String token, Long barberId, LocalDate date, String holdId) {
+        release(authService.getCustomerIdFromToken(token), barberId, date, holdId);
+    }
+
+    private void release(Long customerId, Long barberId, LocalDate date, String holdId) {
+        redisTemplate.execute(RELEASE_SCRIPT, List.of(key(barberId, date), customerKey(customerId)),
+            holdId, String.valueOf(customerId));
+    }
+
+    /**
+     * Release once the surrounding transaction commits, i.e. when the appointment has taken over the slot.
+     */
+    public void releaseAfterCommit(Long customerId, Long barberId, LocalDate date, String holdId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release(customerId, barberId, date, holdId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    release(customerId, barberId, date, holdId);
+                } catch (Exception e) {
+                    logger.warn("Failed to release slot hold {}: {}", holdId, e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Reject [start, end) when it overlaps a live hold other than {@code ownHoldId}.
+     * Holds are advisory: when Redis is unavailable the check passes, and the booking's advisory
+     * lock and exclusion constraint still decide.
+     */
+    public void assertNotHeldByOthers(Long barberId, LocalDateTime start, LocalDateTime end, String ownHoldId) {
+        LocalDate day = start.toLocalDate();
+        Map<Object, Object> entries;
+        try {
+            entries = redisTemplate.opsForHash().entries(key(barberId, day));
+        } catch (Exception e) {
+            logger.warn("Could not read slot holds for barber {} on {}, booking without the hold check: {}", barberId, day, e.getMessage());
+            return;
+        }
+        DayOccupancy held = toOccupancy(entries, ownHoldId, System.currentTimeMillis());
+        int to = end.toLocalDate().isAfter(day) ? DayOccupancy.MINUTES_PER_DAY : DayOccupancy.ceilMinute(end.toLocalTime());
+        if (!held.isFree(DayOccupancy.floorMinute(start.toLocalTime()), to)) {
+            throw new SlotTakenException("This time slot is being booked by another customer");
+        }
+    }
+
+    /**
+     * Minutes of the barber's day covered by live holds. Empty when Redis is unavailable.
+     */
+    public DayOccupancy heldOccupancy(Long barberId, LocalDate date) {
+        try {
+            return toOccupancy(redisTemplate.opsForHash().entries(key(barberId, date)), null, System.currentTimeMillis());
+        } catch (Exception e) {
+            logger.warn("Could not read slot holds for barber {} on {}: {}", barberId, date, e.getMessage());
+            return new DayOccupancy();
+        }
+    }
+
+    /**
+     * Held minutes of several barbers on one day, read in a single pipeline. Barbers without holds are absent.
+     */
+    public Map<Long, DayOccupancy> heldOccupancy(List<Long> barberIds, LocalDate date) {
+        List<String> keys = new ArrayList<>(barberIds.size());
+        for (Long barberId : barberIds) {
+            keys.add(key(barberId, date));
+        }
+        List<DayOccupancy> held = readAll(keys);
+        Map<Long, DayOccupancy> byBarber = new HashMap<>();
+        for (int i = 0; i < held.size(); i++) {
+            if (held.get(i) != null) {
+                byBarber.put(barberIds.get(i), held.get(i));
+            }
+        }
+        return byBarber;
+    }
+
+    /**
+     * Held minutes of one barber over the inclusive range [from, to], read in a single pipeline. Days without holds are absent.
+     */
+    public Map<LocalDate, DayOccupancy> heldOccupancy(Long barberId, LocalDate from, LocalDate to) {
+        List<LocalDate> days = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            days.add(day);
+            keys.add(key(barberId, day));
+        }
+        List<DayOccupancy> held = readAll(keys);
+        Map<LocalDate, DayOccupancy> byDay = new HashMap<>();
+        for (int i = 0; i < held.size(); i++) {
+            if (held.get(i) != null) {
+                byDay.put(days.get(i), held.get(i));
+            }
+        }
+        return byDay;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<DayOccupancy> readAll(List<String> keys) {
+        List<DayOccupancy> held = new ArrayList<>(keys.size());
+        try {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String key : keys) {
+                    connection.hashCommands().hGetAll(key.getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+            long now = System.currentTimeMillis();
+            for (Object result : results) {
+                Map<Object, Object> entries = (Map<Object, Object>) result;
+                held.add(entries == null || entries.isEmpty() ? null : toOccupancy(entries, null, now));
+            }
+        } catch (Exception e) {
+            logger.warn("Could not read slot holds: {}", e.getMessage());
+        }
+        return held;
+    }
+
+    private static DayOccupancy toOccupancy(Map<Object, Object> entries, String excludedHoldId, long now) {
+        DayOccupancy occupancy = new DayOccupancy();
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            if (entry.getKey().toString().equals(excludedHoldId)) continue;
+            String[] parts = entry.getValue().toString().split(":");
+            if (parts.length < 3 || Long.parseLong(parts[2]) <= now) continue;
+            occupancy.occupy(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+        }
+        return occupancy;
+    }
+
+    private static String key(Long barberId, LocalDate date) {
+        return KEY_PREFIX + barberId + ":" + date;
+    }
+
+    private static String customerKey(Long customerId) {
+        return CUSTOMER_KEY_PREFIX + customerId;
+    }
+}
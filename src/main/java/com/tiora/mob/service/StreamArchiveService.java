@@ -0,0 +1,224 @@
+package com.tiora.mob.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Copies stream entries that have fallen out of retention to gzip-compressed JSON lines
+ * ({@code {directory}/{stream}/{yyyy-MM-dd}.jsonl.gz}, one object per line: {@code {"id", "fields"}}
+ * for field maps, {@code {"id", "event"}} with the decoded envelope otherwise)
+ * and records the last copied id in {@code {stream}:archived}. {@link StreamRetentionService} then
+ * lets publishes trim up to that id. Each run appends one gzip member per stream; gunzip and
+ * {@link java.util.zip.GZIPInputStream} read the concatenated members as one file.
+ * <p>
+ * One instance archives at a time (lease {@code stream-archive}); every instance picks up the
+ * archived ids. A crash between writing a file and recording the id repeats those entries in the archive.
+ * Whichever instance holds the lease writes, so the directory must be storage shared by all of them;
+ * archiving does not start without one configured.
+ */
+@Service
+public class StreamArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamArchiveService.class);
+    private static final String ARCHIVED_SUFFIX = ":archived";
+
+    @Autowired
+    @Qualifier("customStringRedisTemplate")
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private StreamRetentionService streamRetentionService;
+
+    @Autowired
+    private StreamEventCodec streamEventCodec;
+
+    @Autowired
+    private SchedulerLeaseService schedulerLeaseService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.streams.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.streams.archive.directory:}")
+    private String directory;
+
+    @Value("${app.streams.archive.interval-ms:60000}")
+    private long intervalMillis;
+
+    @Value("${app.streams.archive.max-per-run:5000}")
+    private int maxPerRun;
+
+    @PostConstruct
+    void checkDirectory() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (directory == null || directory.isBlank()) {
+            throw new IllegalStateException("app.streams.archive.enabled needs app.streams.archive.directory "
+                + "(STREAMS_ARCHIVE_DIR) on storage shared by every instance");
+        }
+        Path root = Files.createDirectories(Paths.get(directory));
+        if (!Files.isWritable(root)) {
+            throw new IllegalStateException("Stream archive directory " + root.toAbsolutePath() + " is not writable");
+        }
+        logger.info("Archiving stream entries past retention to {}", root.toAbsolutePath());
+    }
+
+    @Scheduled(fixedDelayString = "${app.streams.archive.interval-ms:60000}",
+               initialDelayString = "${app.streams.archive.interval-ms:60000}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        refreshArchivedIds();
+        SchedulerLeaseService.Lease lease = schedulerLeaseService.tryAcquire("stream-archive", Duration.ofMillis(intervalMillis));
+        if (lease == null) {
+            return;
+        }
+        try {
+            for (Map.Entry<String, StreamRetentionService.Policy> entry : streamRetentionService.policies().entrySet()) {
+                if (!schedulerLeaseService.isHeld(lease)) {
+                    logger.warn("Lost the stream-archive lease, stopping");
+                    break;
+                }
+                try {
+                    archive(entry.getKey(), entry.getValue());
+                } catch (Exception e) {
+                    logger.warn("Could not archive {}: {}", entry.getKey(), e.getMessage());
+                }
+            }
+        } finally {
+            schedulerLeaseService.release(lease);
+        }
+    }
+
+    /**
+     * Copy out the oldest entries of {@code stream} beyond its retention, up to {@code max-per-run}.
+     * Returns how many were written.
+     */
+    int archive(String stream, StreamRetentionService.Policy policy) throws IOException {
+        Range<String> range;
+        Limit limit;
+        if (policy.isByLength()) {
+            Long size = redisTemplate.opsForStream().size(stream);
+            long excess = size != null ? size - policy.getMaxLength() : 0;
+            if (excess <= 0) {
+                return 0;
+            }
+            // Counted from the head: approximate trimming may have left some already archived entries there
+            range = Range.unbounded();
+            limit = Limit.limit().count((int) Math.min(excess, maxPerRun));
+        } else {
+            range = Range.leftUnbounded(Range.Bound.exclusive(policy.minId()));
+            limit = Limit.limit().count(maxPerRun);
+        }
+        // Raw values, so binary envelopes are read intact
+        byte[] key = stream.getBytes(StandardCharsets.UTF_8);
+        List<ByteRecord> expired = redisTemplate.execute((RedisCallback<List<ByteRecord>>) connection ->
+            connection.streamCommands().xRange(key, range, limit));
+        if (expired == null || expired.isEmpty()) {
+            return 0;
+        }
+        String archived = streamRetentionService.archivedUpTo(stream);
+        List<ByteRecord> fresh = new ArrayList<>(expired.size());
+        for (ByteRecord record : expired) {
+            if (archived == null || StreamRetentionService.compareIds(record.getId().getValue(), archived) > 0) {
+                fresh.add(record);
+            }
+        }
+        if (!fresh.isEmpty()) {
+            append(stream, fresh);
+            Counter.builder("stream.archive.entries")
+                .tag("stream", stream)
+                .description("Stream entries copied to the archive")
+                .register(meterRegistry)
+                .increment(fresh.size());
+        }
+        String last = expired.get(expired.size() - 1).getId().getValue();
+        redisTemplate.opsForValue().set(stream + ARCHIVED_SUFFIX, last);
+        streamRetentionService.setArchivedUpTo(stream, last);
+        if (!fresh.isEmpty()) {
+            logger.info("Archived {} entries of {} up to {}", fresh.size(), stream, last);
+        }
+        return fresh.size();
+    }
+
+    private void append(String stream, List<ByteRecord> records) throws IOException {
+        Path file = Paths.get(directory, stream.replace(':', '_'), LocalDate.now(ZoneOffset.UTC) + ".jsonl.gz");
+        Files.createDirectories(file.getParent());
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)), StandardCharsets.UTF_8)) {
+            for (ByteRecord record : records) {
+                Map<String, byte[]> fields = StreamConsumerService.fields(record);
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("id", record.getId().getValue());
+                if (StreamEventCodec.isEnvelope(fields)) {
+                    try {
+                        line.put("event", streamEventCodec.decode(fields));
+                    } catch (RuntimeException e) {
+                        // e.g. a newer envelope version: keep the bytes rather than lose the entry
+                        line.put("envelope", Base64.getEncoder().encodeToString(fields.get(StreamEventCodec.ENVELOPE_FIELD)));
+                    }
+                } else {
+                    Map<String, String> text = new LinkedHashMap<>();
+                    fields.forEach((name, value) -> text.put(name, new String(value, StandardCharsets.UTF_8)));
+                    line.put("fields", text);
+                }
+                writer.write(objectMapper.writeValueAsString(line));
+                writer.write('\n');
+            }
+        }
+    }
+
+    private void refreshArchivedIds() {
+        List<String> streams = new ArrayList<>(streamRetentionService.policies().keySet());
+        try {
+            List<String> ids = redisTemplate.opsForValue().multiGet(streams.stream().map(s -> s + ARCHIVED_SUFFIX).toList());
+            for (int i = 0; ids != null && i < streams.size(); i++) {
+                if (ids.get(i) != null) {
+                    streamRetentionService.setArchivedUpTo(streams.get(i), ids.get(i));
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Could not read archived stream ids: {}", e.getMessage());
+        }
+    }
+}
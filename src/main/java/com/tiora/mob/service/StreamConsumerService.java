@@ -0,0 +1,378 @@
+package com.tiora.mob.service;
+
+import com.tiora.mob.dto.StreamEventEnvelope;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.stream.StreamMessageListenerContainer;
+import org.springframework.data.redis.stream.Subscription;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Consumer-group subscriptions to Redis Streams on one shared {@link StreamMessageListenerContainer}.
+ * Each subscription reads up to {@code batch-size} entries per XREADGROUP and blocks for at most
+ * {@code poll-timeout-ms} when the stream is idle, with no sleep between reads.
+ * <p>
+ * Handled entries are acknowledged in batches: ids are queued per subscription and sent as one
+ * multi-id XACK each, pipelined, once a read's worth has accumulated or every {@code ack-flush-ms}.
+ * An entry whose XACK had not been sent when the process died stays pending and is handled again,
+ * so handlers must tolerate the occasional repeat. The consumer's own pending entries are replayed
+ * once when it subscribes, not on every read.
+ * <p>
+ * Field values are read as raw bytes and decoded by {@link StreamEventCodec}, so handlers get a
+ * {@link StreamEventEnvelope} whether the entry holds an encoded envelope or a legacy field map.
+ * An entry that cannot be decoded stays pending like one whose handler failed.
+ */
+@Service
+public class StreamConsumerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamConsumerService.class);
+
+    @Autowired
+    @Qualifier("customStringRedisTemplate")
+    private RedisTemplate<String, String> redisTemplate;
+
+    // Platform or virtual threads, see ThreadingConfig
+    @Autowired
+    @Qualifier("streamConsumerThreadFactory")
+    private ThreadFactory streamConsumerThreadFactory;
+
+    @Autowired
+    private StreamEventCodec streamEventCodec;
+
+    @Value("${app.streams.consumer.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.streams.consumer.poll-timeout-ms:2000}")
+    private long pollTimeoutMillis;
+
+    @Value("${app.streams.consumer.ack-flush-ms:100}")
+    private long ackFlushMillis;
+
+    // Pause after a failed read (e.g. Redis unreachable) so the poll loop does not spin
+    @Value("${app.streams.consumer.error-backoff-ms:2000}")
+    private long errorBackoffMillis;
+
+    private StreamMessageListenerContainer<String, MapRecord<String, String, byte[]>> container;
+    private ScheduledExecutorService ackFlusher;
+    private final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+    private final AtomicInteger queuedAcks = new AtomicInteger();
+
+    /**
+     * Handles one stream entry. When it throws, the entry is left pending for {@link StreamReclaimService},
+     * which hands it to a consumer again and copies it to {@code {stream}:dlq} after too many deliveries,
+     * so a handler rethrows a failure it wants retried rather than swallowing it.
+     */
+    @FunctionalInterface
+    public interface StreamHandler {
+        void handle(RecordId id, StreamEventEnvelope event) throws Exception;
+    }
+
+    /**
+     * Takes over one stream entry and reports its outcome through {@code completion} once it has been
+     * processed, possibly on another thread; only a completed entry is acknowledged. An entry whose
+     * handler throws, or that is reported failed, is left pending.
+     */
+    @FunctionalInterface
+    public interface DeferredStreamHandler {
+        void handle(RecordId id, StreamEventEnvelope event, Completion completion) throws Exception;
+    }
+
+    /**
+     * Outcome of one entry handed to a {@link DeferredStreamHandler}; call exactly one of the two.
+     */
+    public interface Completion {
+        /** Processed: the entry is acknowledged. */
+        void done();
+
+        /** Not processed: the entry stays pending for {@link StreamReclaimService}. */
+        void failed();
+    }
+
+    /**
+     * One consumer-group subscription: which stream it reads, as which group and consumer.
+     */
+    public static final class Registration {
+        private final String name;
+        private final String stream;
+        private final String group;
+        private final String consumer;
+        private final DeferredStreamHandler handler;
+        private final Queue<String> unacknowledged = new ConcurrentLinkedQueue<>();
+        // Handed to the handler and not finished yet, e.g. still queued on a lane
+        private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+        private volatile Subscription subscription;
+
+        private Registration(String name, String stream, String group, String consumer, DeferredStreamHandler handler) {
+            this.name = name;
+            this.stream = stream;
+            this.group = group;
+            this.consumer = consumer;
+            this.handler = handler;
+        }
+
+        public String getName() { return name; }
+        public String getStream() { return stream; }
+        public String getGroup() { return group; }
+        public String getConsumer() { return consumer; }
+        public boolean isActive() { return subscription != null && subscription.isActive(); }
+
+        Set<String> inFlight() { return inFlight; }
+    }
+
+    @PostConstruct
+    public void start() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor();
+        executor.setThreadFactory(streamConsumerThreadFactory);
+        RedisConnectionFactory connectionFactory = redisTemplate.getConnectionFactory();
+        StreamMessageListenerContainer.StreamMessageListenerContainerOptions<String, MapRecord<String, String, byte[]>> options =
+            StreamMessageListenerContainer.StreamMessageListenerContainerOptions.builder()
+                .batchSize(batchSize)
+                .pollTimeout(Duration.ofMillis(pollTimeoutMillis))
+                .executor(executor)
+                .<String, byte[]>hashValueSerializer(RedisSerializer.byteArray())
+                .build();
+        container = StreamMessageListenerContainer.create(connectionFactory, options);
+        container.start();
+        ackFlusher = Executors.newSingleThreadScheduledExecutor(streamConsumerThreadFactory);
+        ackFlusher.scheduleWithFixedDelay(this::flushAcks, ackFlushMillis, ackFlushMillis, TimeUnit.MILLISECONDS);
+        logger.info("Stream consumer container started: batch size {}, poll timeout {} ms", batchSize, pollTimeoutMillis);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (container != null) {
+            container.stop();
+        }
+        if (ackFlusher != null) {
+            ackFlusher.shutdown();
+        }
+        flushAcks();
+    }
+
+    /**
+     * Subscribe {@code consumer} of {@code group} to new entries of {@code stream}. The group is
+     * created (with the stream) at {@code groupOffset} if missing, and entries left pending for this
+     * consumer by an earlier run are handled first.
+     */
+    public void register(String name, String stream, String group, String consumer, ReadOffset groupOffset,
+                         StreamHandler handler) {
+        registerDeferred(name, stream, group, consumer, groupOffset, (id, event, completion) -> {
+            try {
+                handler.handle(id, event);
+            } catch (Exception e) {
+                logger.error("{} failed to handle stream entry {}, left pending: {}", name, id, e.getMessage(), e);
+                completion.failed();
+                return;
+            }
+            completion.done();
+        });
+    }
+
+    /**
+     * Like {@link #register}, for handlers that finish entries asynchronously.
+     */
+    public void registerDeferred(String name, String stream, String group, String consumer, ReadOffset groupOffset,
+                                 DeferredStreamHandler handler) {
+        ensureGroup(stream, group, groupOffset);
+        Registration registration = new Registration(name, stream, group, consumer, handler);
+        registrations.put(name, registration);
+        // Replay off the caller's thread; new entries are read concurrently and do not wait for it
+        streamConsumerThreadFactory.newThread(() -> recoverPending(registration)).start();
+
+        StreamMessageListenerContainer.StreamReadRequest<String> request = StreamMessageListenerContainer.StreamReadRequest
+            .builder(StreamOffset.create(stream, ReadOffset.lastConsumed()))
+            .consumer(Consumer.from(group, consumer))
+            .autoAcknowledge(false)
+            .cancelOnError(e -> false)
+            .errorHandler(e -> {
+                logger.error("Error reading stream {} as {}/{}: {}", stream, group, consumer, e.getMessage());
+                sleepQuietly(errorBackoffMillis);
+            })
+            .build();
+        registration.subscription = container.register(request,
+            record -> handle(registration, record.getId(), record.getValue()));
+        logger.info("Subscribed {} to stream {} as {}/{}", name, stream, group, consumer);
+    }
+
+    public boolean isActive(String name) {
+        Registration registration = registrations.get(name);
+        return registration != null && registration.isActive();
+    }
+
+    public Collection<Registration> registrations() {
+        return registrations.values();
+    }
+
+    /**
+     * Handle an entry this consumer has just claimed from another one; acknowledged like any other.
+     * An entry this instance is still processing is not handed over a second time.
+     */
+    public void handleClaimed(Registration registration, RecordId recordId, Map<String, byte[]> fields) {
+        handle(registration, recordId, fields);
+    }
+
+    private void handle(Registration registration, RecordId recordId, Map<String, byte[]> fields) {
+        String id = recordId.getValue();
+        if (!registration.inFlight.add(id)) {
+            logger.debug("{} is already processing stream entry {}", registration.name, id);
+            return;
+        }
+        Completion completion = new Completion() {
+            @Override
+            public void done() {
+                registration.inFlight.remove(id);
+                acknowledge(registration, id);
+            }
+
+            @Override
+            public void failed() {
+                registration.inFlight.remove(id);
+            }
+        };
+        try {
+            StreamEventEnvelope event = streamEventCodec.decode(fields);
+            registration.handler.handle(recordId, event, completion);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completion.failed();
+            logger.warn("{} interrupted before taking stream entry {}; it stays pending", registration.name, id);
+        } catch (Exception e) {
+            completion.failed();
+            logger.error("{} could not take stream entry {}; it stays pending: {}", registration.name, id, e.getMessage(), e);
+        }
+    }
+
+    private void acknowledge(Registration registration, String id) {
+        registration.unacknowledged.add(id);
+        if (queuedAcks.incrementAndGet() >= batchSize) {
+            flushAcks();
+        }
+    }
+
+    /**
+     * Read this consumer's pending entries (XREADGROUP from id 0) page by page and handle them.
+     */
+    private void recoverPending(Registration registration) {
+        Consumer consumer = Consumer.from(registration.group, registration.consumer);
+        byte[] stream = registration.stream.getBytes(StandardCharsets.UTF_8);
+        String lastId = "0";
+        int recovered = 0;
+        try {
+            while (true) {
+                ReadOffset from = ReadOffset.from(lastId);
+                List<ByteRecord> page = redisTemplate.execute((RedisCallback<List<ByteRecord>>) connection ->
+                    connection.streamCommands().xReadGroup(consumer, StreamReadOptions.empty().count(batchSize),
+                        StreamOffset.create(stream, from)));
+                if (page == null || page.isEmpty()) {
+                    break;
+                }
+                for (ByteRecord record : page) {
+                    handle(registration, record.getId(), fields(record));
+                    lastId = record.getId().getValue();
+                }
+                recovered += page.size();
+            }
+        } catch (Exception e) {
+            logger.error("Could not recover pending entries of {} on {}: {}", registration.name, registration.stream, e.getMessage());
+        }
+        if (recovered > 0) {
+            logger.info("{} recovered {} pending entries from {}", registration.name, recovered, registration.stream);
+        }
+    }
+
+    /**
+     * Send every queued acknowledgement: one XACK per subscription, all in one pipeline.
+     * Ids that could not be sent are dropped and stay pending in Redis.
+     */
+    synchronized void flushAcks() {
+        Map<Registration, String[]> batch = new HashMap<>();
+        int total = 0;
+        for (Registration registration : registrations.values()) {
+            List<String> ids = new ArrayList<>();
+            String id;
+            while ((id = registration.unacknowledged.poll()) != null) {
+                ids.add(id);
+            }
+            if (!ids.isEmpty()) {
+                batch.put(registration, ids.toArray(new String[0]));
+                total += ids.size();
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        queuedAcks.addAndGet(-total);
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Map.Entry<Registration, String[]> entry : batch.entrySet()) {
+                    connection.streamCommands().xAck(entry.getKey().stream.getBytes(StandardCharsets.UTF_8),
+                        entry.getKey().group, entry.getValue());
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("Could not acknowledge {} stream entries: {}", total, e.getMessage());
+        }
+    }
+
+    /**
+     * Field names of a raw entry as strings; values stay raw for {@link StreamEventCodec#decode}.
+     */
+    static Map<String, byte[]> fields(ByteRecord record) {
+        Map<String, byte[]> fields = new HashMap<>(record.getValue().size() * 2);
+        record.getValue().forEach((name, value) -> fields.put(new String(name, StandardCharsets.UTF_8), value));
+        return fields;
+    }
+
+    private void ensureGroup(String stream, String group, ReadOffset offset) {
+        try {
+            redisTemplate.opsForStream().createGroup(stream, offset, group);
+            logger.info("Created consumer group {} for stream {}", group, stream);
+        } catch (Exception e) {
+            // BUSYGROUP: the group is already there
+            logger.debug("Consumer group {} for stream {} not created: {}", group, stream, e.getMessage());
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.tiora.mob.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.cfg.MapperBuilder;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.tiora.mob.dto.StreamEventEnvelope;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Encodes {@link StreamEventEnvelope}s for XADD and decodes stream entries back into them.
+ * <p>
+ * {@code app.streams.envelope.format} picks what publishers write: {@code LEGACY} keeps the flat
+ * field map (messageType, salonId, data as nested JSON, ...) that the web backend and barber app read
+ * today; {@code JSON}, {@code CBOR} and {@code SMILE} write the whole envelope into the single field
+ * {@value #ENVELOPE_FIELD}. Decoding accepts every format whatever the setting: the codec of an
+ * envelope is recognised from its first bytes, and entries without the envelope field go through the
+ * compatibility reader for field maps. Switch the format only once every reader of a stream decodes envelopes.
+ */
+@Service
+public class StreamEventCodec {
+
+    public static final String ENVELOPE_FIELD = "e";
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+    private static final byte[] SMILE_HEADER = {':', ')', '\n'};
+    // CBOR self-describe tag 55799, written ahead of every CBOR envelope
+    private static final byte[] CBOR_HEADER = {(byte) 0xD9, (byte) 0xD9, (byte) 0xF7};
+
+    public enum Format { LEGACY, JSON, CBOR, SMILE }
+
+    private final Format format;
+    private final ObjectMapper jsonMapper;
+    private final Map<Format, ObjectWriter> writers = new EnumMap<>(Format.class);
+    private final Map<Format, ObjectReader> decoders = new EnumMap<>(Format.class);
+
+    public StreamEventCodec(@Value("${app.streams.envelope.format:LEGACY}") Format format) {
+        this.format = format;
+        this.jsonMapper = configure(JsonMapper.builder());
+        register(Format.JSON, jsonMapper);
+        register(Format.CBOR, configure(CBORMapper.builder().enable(CBORGenerator.Feature.WRITE_TYPE_HEADER)));
+        register(Format.SMILE, configure(SmileMapper.builder()));
+    }
+
+    private static <M extends ObjectMapper, B extends MapperBuilder<M, B>> M configure(B builder) {
+        return builder
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    }
+
+    private void register(Format codec, ObjectMapper mapper) {
+        writers.put(codec, mapper.writerFor(StreamEventEnvelope.class));
+        decoders.put(codec, mapper.readerFor(StreamEventEnvelope.class));
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Stream fields for {@code event} in the configured format: String values for {@code LEGACY},
+     * otherwise the encoded envelope as raw bytes.
+     */
+    public Map<String, ?> encode(StreamEventEnvelope event) {
+        return encode(event, format);
+    }
+
+    public Map<String, ?> encode(StreamEventEnvelope event, Format as) {
+        if (as == Format.LEGACY) {
+            return toLegacyFields(event);
+        }
+        try {
+            return Collections.singletonMap(ENVELOPE_FIELD, writers.get(as).writeValueAsBytes(event));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode " + event.getType() + " event as " + as, e);
+        }
+    }
+
+    /**
+     * Decode the fields of one stream entry, as read with raw values.
+     */
+    public StreamEventEnvelope decode(Map<String, byte[]> fields) {
+        byte[] envelope = isEnvelope(fields) ? fields.get(ENVELOPE_FIELD) : null;
+        if (envelope == null) {
+            Map<String, String> text = new HashMap<>(fields.size() * 2);
+            fields.forEach((name, value) -> text.put(name, value != null ? new String(value, StandardCharsets.UTF_8) : null));
+            return fromLegacyFields(text);
+        }
+        StreamEventEnvelope event;
+        try {
+            event = decoders.get(detect(envelope)).readValue(envelope);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unreadable event envelope: " + e.getMessage(), e);
+        }
+        if (event.getVersion() > StreamEventEnvelope.CURRENT_VERSION) {
+            throw new IllegalStateException("Event envelope version " + event.getVersion()
+                + " is newer than supported version " + StreamEventEnvelope.CURRENT_VERSION);
+        }
+        return event;
+    }
+
+    /**
+     * Whether the entry holds an encoded envelope rather than a field map.
+     */
+    public static boolean isEnvelope(Map<String, byte[]> fields) {
+        return fields.size() == 1 && fields.get(ENVELOPE_FIELD) != null;
+    }
+
+    private static Format detect(byte[] payload) {
+        if (startsWith(payload, SMILE_HEADER)) {
+            return Format.SMILE;
+        }
+        if (startsWith(payload, CBOR_HEADER)) {
+            return Format.CBOR;
+        }
+        for (byte b : payload) {
+            if (b == '{') {
+                return Format.JSON;
+            }
+            if (!Character.isWhitespace(b)) {
+                break;
+            }
+        }
+        throw new IllegalArgumentException("Unrecognised event envelope encoding");
+    }
+
+    private static boolean startsWith(byte[] payload, byte[] prefix) {
+        if (payload.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (payload[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Envelope as JSON text, for storage outside Redis (e.g. the outbox table).
+     */
+    public String toJson(StreamEventEnvelope event) {
+        try {
+            return jsonMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode " + event.getType() + " event", e);
+        }
+    }
+
+    public StreamEventEnvelope fromJson(String json) {
+        try {
+            return jsonMapper.readValue(json, StreamEventEnvelope.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unreadable event envelope: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The flat field map publishers wrote before envelopes: ids as strings, nested maps as JSON.
+     */
+    Map<String, String> toLegacyFields(StreamEventEnvelope event) {
+        Map<String, String> fields = new HashMap<>();
+        putIfPresent(fields, "messageType", event.getType());
+        putIfPresent(fields, "eventType", event.getEventType());
+        putIfPresent(fields, "source", event.getSource());
+        putIfPresent(fields, "sourceSystem", event.getSourceSystem());
+        if (event.getTimestamp() != null) {
+            fields.put("timestamp", LocalDateTime.ofInstant(Instant.ofEpochMilli(event.getTimestamp()), ZoneId.systemDefault()).toString());
+        }
+        putIfPresent(fields, "salonId", event.getSalonId());
+        putIfPresent(fields, "branchId", event.getBranchId());
+        putIfPresent(fields, "appointmentId", event.getAppointmentId());
+        putIfPresent(fields, "customerId", event.getCustomerId());
+        putIfPresent(fields, "barberId", event.getBarberId());
+        putIfPresent(fields, "priority", event.getPriority());
+        putIfPresent(fields, "requiresNotification", event.getRequiresNotification());
+        if (event.getAttributes() != null) {
+            fields.putAll(event.getAttributes());
+        }
+        try {
+            if (event.getMetadata() != null) {
+                fields.put("metadata", jsonMapper.writeValueAsString(event.getMetadata()));
+            }
+            if (event.getData() != null) {
+                fields.put("data", jsonMapper.writeValueAsString(event.getData()));
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode data of " + event.getType() + " event", e);
+        }
+        return fields;
+    }
+
+    private static void putIfPresent(Map<String, String> fields, String name, Object value) {
+        if (value != null) {
+            fields.put(name, value.toString());
+        }
+    }
+
+    /**
+     * Compatibility reader for field maps. Values may carry the JSON quotes of the Jackson-serializing
+     * template, keys may be camelCase or snake_case, and {@code data} / {@code metadata} hold nested JSON.
+     * Fields it has no envelope property for become attributes under their camelCase name.
+     */
+    StreamEventEnvelope fromLegacyFields(Map<String, String> fields) {
+        StreamEventEnvelope event = new StreamEventEnvelope();
+        Map<String, String> attributes = new LinkedHashMap<>();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            String name = camelCase(field.getKey());
+            String value = field.getValue() != null ? unquote(field.getValue()) : null;
+            boolean mapped = switch (name) {
+                case "messageType" -> { event.setType(value); yield true; }
+                case "eventType" -> { event.setEventType(value); yield true; }
+                case "source" -> { event.setSource(value); yield true; }
+                case "sourceSystem" -> { event.setSourceSystem(value); yield true; }
+                case "priority" -> { event.setPriority(value); yield true; }
+                case "requiresNotification" -> { event.setRequiresNotification(value != null ? Boolean.valueOf(value) : null); yield true; }
+                case "timestamp" -> {
+                    event.setTimestamp(parseTimestamp(value));
+                    yield event.getTimestamp() != null;
+                }
+                case "salonId" -> setId(value, event::setSalonId);
+                case "branchId" -> setId(value, event::setBranchId);
+                case "appointmentId" -> setId(value, event::setAppointmentId);
+                case "customerId" -> setId(value, event::setCustomerId);
+                case "barberId" -> setId(value, event::setBarberId);
+                case "data" -> {
+                    event.setData(parseMap(value));
+                    yield event.getData() != null || "null".equals(value);
+                }
+                case "metadata" -> {
+                    event.setMetadata(parseMap(value));
+                    yield event.getMetadata() != null || "null".equals(value);
+                }
+                default -> false;
+            };
+            if (!mapped && value != null) {
+                attributes.put(name, value);
+            }
+        }
+        event.setAttributes(attributes.isEmpty() ? null : attributes);
+        return event;
+    }
+
+    private String unquote(String value) {
+        if (value.length() < 2 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+            return value;
+        }
+        try {
+            return jsonMapper.readValue(value, String.class);
+        } catch (JsonProcessingException e) {
+            return value.substring(1, value.length() - 1);
+        }
+    }
+
+    private static boolean setId(String value, Consumer<Long> setter) {
+        if (value == null || value.isBlank() || "null".equals(value)) {
+            return true;
+        }
+        try {
+            setter.accept(Long.valueOf(value.trim()));
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static Long parseTimestamp(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            try {
+                return Long.valueOf(value);
+            } catch (NumberFormatException notMillis) {
+                return null;
+            }
+        }
+    }
+
+    private Map<String, Object> parseMap(String value) {
+        if (value == null || value.isBlank() || !value.trim().startsWith("{")) {
+            return null;
+        }
+        try {
+            return jsonMapper.readValue(value, MAP_TYPE);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static String camelCase(String name) {
+        if (name.indexOf('_') < 0) {
+            return name;
+        }
+        StringBuilder camel = new StringBuilder(name.length());
+        boolean upper = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '_') {
+                upper = camel.length() > 0;
+            } else {
+                camel.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return camel.toString();
+    }
+}
@@ -0,0 +1,355 @@
+package com.tiora.mob.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recovers stream entries left pending by failed handlers or by instances that went away.
+ * Every run, for each subscription of {@link StreamConsumerService}:
+ * <ul>
+ *   <li>XAUTOCLAIM moves entries idle for longer than {@code min-idle-ms} to this instance's consumer,
+ *       whichever consumer held them, and they are handled again;</li>
+ *   <li>an entry delivered more than {@code max-deliveries} times is copied to {@code {stream}:dlq}
+ *       and acknowledged instead;</li>
+ *   <li>consumers of the group with nothing pending and idle for {@code stale-consumer-ms} are
+ *       removed with XGROUP DELCONSUMER (every instance starts under a new random consumer name).</li>
+ * </ul>
+ * XAUTOCLAIM is atomic, so instances can run this concurrently. Requires Redis 6.2+.
+ * <p>
+ * Entries an instance has read but not finished (e.g. still queued on a lane of
+ * {@link MobileAppointmentStreamConsumer}) are not idle work: each run first resets their idle time
+ * with XCLAIM ... JUSTID, so no instance claims them while the run interval stays below
+ * {@code min-idle-ms}, and this instance never hands its own in-flight entries over twice.
+ */
+@Service
+public class StreamReclaimService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamReclaimService.class);
+    public static final String DLQ_SUFFIX = ":dlq";
+    private static final String DLQ_FIELD_PREFIX = "dlq_";
+
+    // One XAUTOCLAIM page with each claimed entry's delivery count: {cursor, {id, deliveries, {field, value, ...}}, ...}.
+    // Entries deleted from the stream meanwhile (Redis 6.2 still returns them, without fields) are acknowledged.
+    private static final byte[] CLAIM_SCRIPT = (
+        "local claimed = redis.call('XAUTOCLAIM', KEYS[1], ARGV[1], ARGV[2], ARGV[3], ARGV[4], 'COUNT', ARGV[5]) " +
+        "local out = {claimed[1]} " +
+        "for _, entry in ipairs(claimed[2]) do " +
+        "  if entry and entry[2] then " +
+        "    local pending = redis.call('XPENDING', KEYS[1], ARGV[1], entry[1], entry[1], 1) " +
+        "    local deliveries = pending[1] and pending[1][4] or 1 " +
+        "    table.insert(out, {entry[1], deliveries, entry[2]}) " +
+        "  elseif entry and entry[1] then " +
+        "    redis.call('XACK', KEYS[1], ARGV[1], entry[1]) " +
+        "  end " +
+        "end " +
+        "return out").getBytes(StandardCharsets.UTF_8);
+
+    // Reset the idle time of the given entries that are still pending for this consumer: KEYS[1] stream,
+    // ARGV[1] group, ARGV[2] consumer, ARGV[3..] ids. JUSTID leaves the delivery count alone.
+    private static final byte[] TOUCH_SCRIPT = (
+        "local touched = 0 " +
+        "for i = 3, #ARGV do " +
+        "  local pending = redis.call('XPENDING', KEYS[1], ARGV[1], ARGV[i], ARGV[i], 1) " +
+        "  if pending[1] and pending[1][2] == ARGV[2] then " +
+        "    redis.call('XCLAIM', KEYS[1], ARGV[1], ARGV[2], 0, ARGV[i], 'JUSTID') " +
+        "    touched = touched + 1 " +
+        "  end " +
+        "end " +
+        "return touched").getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    @Qualifier("customStringRedisTemplate")
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private StreamConsumerService streamConsumerService;
+
+    @Autowired
+    private StreamRetentionService streamRetentionService;
+
+    @Autowired
+    private StreamEventCodec streamEventCodec;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.streams.reclaim.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.streams.reclaim.min-idle-ms:120000}")
+    private long minIdleMillis;
+
+    @Value("${app.streams.reclaim.interval-ms:30000}")
+    private long intervalMillis;
+
+    @Value("${app.streams.reclaim.max-deliveries:5}")
+    private long maxDeliveries;
+
+    @Value("${app.streams.reclaim.batch-size:100}")
+    private int batchSize;
+
+    // Upper bound per stream and run, so one backlog cannot hold the scheduler thread for long
+    @Value("${app.streams.reclaim.max-per-run:1000}")
+    private int maxPerRun;
+
+    @Value("${app.streams.reclaim.stale-consumer-ms:3600000}")
+    private long staleConsumerMillis;
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void checkIntervals() {
+        // In-flight entries are only kept from other instances if they are touched before they get this idle
+        if (enabled && intervalMillis >= minIdleMillis) {
+            throw new IllegalStateException("app.streams.reclaim.interval-ms (" + intervalMillis
+                + ") must be below app.streams.reclaim.min-idle-ms (" + minIdleMillis + ")");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.streams.reclaim.interval-ms:30000}",
+               initialDelayString = "${app.streams.reclaim.interval-ms:30000}")
+    public void reclaim() {
+        if (!enabled) {
+            return;
+        }
+        for (StreamConsumerService.Registration registration : streamConsumerService.registrations()) {
+            try {
+                reclaim(registration);
+                removeStaleConsumers(registration);
+            } catch (Exception e) {
+                logger.warn("Reclaim of {} failed: {}", registration.getStream(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Claim idle entries of the subscription's group page by page; returns how many were claimed.
+     */
+    int reclaim(StreamConsumerService.Registration registration) {
+        touchInFlight(registration);
+        String cursor = "0-0";
+        int claimed = 0;
+        do {
+            List<Object> page = claimPage(registration, cursor);
+            if (page == null || page.isEmpty()) {
+                break;
+            }
+            cursor = string(page.get(0));
+            for (Object item : page.subList(1, page.size())) {
+                List<?> entry = (List<?>) item;
+                RecordId id = RecordId.of(string(entry.get(0)));
+                Map<String, byte[]> fields = fields((List<?>) entry.get(2));
+                long deliveries = ((Number) entry.get(1)).longValue();
+                if (registration.inFlight().contains(id.getValue())) {
+                    // Ours and still queued; idle only because it has waited on its lane
+                    continue;
+                }
+                claimed++;
+                if (deliveries > maxDeliveries) {
+                    deadLetter(registration, id, fields, deliveries);
+                } else {
+                    counter("stream.reclaim.claimed", registration.getStream()).increment();
+                    streamConsumerService.handleClaimed(registration, id, fields);
+                }
+            }
+        } while (!"0-0".equals(cursor) && claimed < maxPerRun);
+        if (claimed > 0) {
+            logger.info("Reclaimed {} idle entries of {} for {}", claimed, registration.getStream(), registration.getConsumer());
+        }
+        return claimed;
+    }
+
+    private void touchInFlight(StreamConsumerService.Registration registration) {
+        List<String> ids = new ArrayList<>(registration.inFlight());
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<String> chunk = ids.subList(from, Math.min(ids.size(), from + batchSize));
+            byte[][] keysAndArgs = new byte[chunk.size() + 3][];
+            keysAndArgs[0] = bytes(registration.getStream());
+            keysAndArgs[1] = bytes(registration.getGroup());
+            keysAndArgs[2] = bytes(registration.getConsumer());
+            for (int i = 0; i < chunk.size(); i++) {
+                keysAndArgs[i + 3] = bytes(chunk.get(i));
+            }
+            redisTemplate.execute((RedisCallback<Object>) connection ->
+                connection.scriptingCommands().eval(TOUCH_SCRIPT, ReturnType.INTEGER, 1, keysAndArgs));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> claimPage(StreamConsumerService.Registration registration, String cursor) {
+        return (List<Object>) redisTemplate.execute((RedisCallback<Object>) connection ->
+            connection.scriptingCommands().eval(CLAIM_SCRIPT, ReturnType.MULTI, 1,
+                bytes(registration.getStream()), bytes(registration.getGroup()), bytes(registration.getConsumer()),
+                bytes(String.valueOf(minIdleMillis)), bytes(cursor), bytes(String.valueOf(batchSize))));
+    }
+
+    private void deadLetter(StreamConsumerService.Registration registration, RecordId id, Map<String, byte[]> entry,
+                            long deliveries) {
+        // Original values are copied byte for byte, so encoded envelopes survive the round trip
+        Map<String, Object> fields = new LinkedHashMap<>(entry);
+        fields.put(DLQ_FIELD_PREFIX + "source_id", id.getValue());
+        fields.put(DLQ_FIELD_PREFIX + "group", registration.getGroup());
+        fields.put(DLQ_FIELD_PREFIX + "deliveries", String.valueOf(deliveries));
+        fields.put(DLQ_FIELD_PREFIX + "at", Instant.now().toString());
+        streamRetentionService.add(redisTemplate, registration.getStream() + DLQ_SUFFIX, fields);
+        redisTemplate.opsForStream().acknowledge(registration.getStream(), registration.getGroup(), id);
+        counter("stream.reclaim.dead_lettered", registration.getStream()).increment();
+        logger.warn("Dead-lettered {} entry {} after {} deliveries", registration.getStream(), id, deliveries);
+    }
+
+    private void removeStaleConsumers(StreamConsumerService.Registration registration) {
+        StreamInfo.XInfoConsumers consumers = redisTemplate.opsForStream()
+            .consumers(registration.getStream(), registration.getGroup());
+        consumers.forEach(consumer -> {
+            if (!consumer.consumerName().equals(registration.getConsumer())
+                    && consumer.pendingCount() == 0 && consumer.idleTimeMs() >= staleConsumerMillis) {
+                redisTemplate.opsForStream().deleteConsumer(registration.getStream(),
+                    Consumer.from(registration.getGroup(), consumer.consumerName()));
+                logger.info("Removed stale consumer {} from {}/{}", consumer.consumerName(),
+                    registration.getStream(), registration.getGroup());
+            }
+        });
+    }
+
+    /**
+     * Per subscribed stream: group, this instance's consumer, pending entries and dead-letter backlog.
+     */
+    public List<Map<String, Object>> status() {
+        List<Map<String, Object>> status = new ArrayList<>();
+        for (StreamConsumerService.Registration registration : streamConsumerService.registrations()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("stream", registration.getStream());
+            entry.put("group", registration.getGroup());
+            entry.put("consumer", registration.getConsumer());
+            entry.put("active", registration.isActive());
+            PendingMessagesSummary pending = redisTemplate.opsForStream()
+                .pending(registration.getStream(), registration.getGroup());
+            entry.put("pending", pending != null ? pending.getTotalPendingMessages() : 0);
+            entry.put("deadLetters", redisTemplate.opsForStream().size(registration.getStream() + DLQ_SUFFIX));
+            status.add(entry);
+        }
+        return status;
+    }
+
+    /**
+     * The newest {@code count} dead letters of a subscribed stream, newest first, with the dlq_* fields
+     * and the entry decoded as an event (or the decoding error).
+     */
+    public List<Map<String, Object>> deadLetters(String stream, int count) {
+        byte[] key = bytes(dlqKey(stream));
+        List<ByteRecord> records = redisTemplate.execute((RedisCallback<List<ByteRecord>>) connection ->
+            connection.streamCommands().xRevRange(key, Range.unbounded(), Limit.limit().count(count)));
+        List<Map<String, Object>> result = new ArrayList<>();
+        if (records != null) {
+            for (ByteRecord record : records) {
+                Map<String, byte[]> fields = StreamConsumerService.fields(record);
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("id", record.getId().getValue());
+                fields.forEach((name, value) -> {
+                    if (name.startsWith(DLQ_FIELD_PREFIX)) {
+                        entry.put(name, string(value));
+                    }
+                });
+                fields.keySet().removeIf(name -> name.startsWith(DLQ_FIELD_PREFIX));
+                try {
+                    entry.put("event", streamEventCodec.decode(fields));
+                } catch (RuntimeException e) {
+                    entry.put("error", e.getMessage());
+                }
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Append the given dead letters to their source stream again, without the dlq_* fields, and remove
+     * them from the dead-letter stream. Returns dead-letter id to new entry id; unknown ids are skipped.
+     */
+    public Map<String, String> replay(String stream, List<String> ids) {
+        String dlqKey = dlqKey(stream);
+        Map<String, String> replayed = new LinkedHashMap<>();
+        for (String id : ids) {
+            List<ByteRecord> found = redisTemplate.execute((RedisCallback<List<ByteRecord>>) connection ->
+                connection.streamCommands().xRange(bytes(dlqKey), Range.closed(id, id)));
+            if (found == null || found.isEmpty()) {
+                continue;
+            }
+            Map<String, byte[]> fields = StreamConsumerService.fields(found.get(0));
+            fields.keySet().removeIf(field -> field.startsWith(DLQ_FIELD_PREFIX));
+            RecordId newId = streamRetentionService.add(redisTemplate, stream, fields);
+            redisTemplate.opsForStream().delete(dlqKey, id);
+            replayed.put(id, newId != null ? newId.getValue() : null);
+            logger.info("Replayed dead letter {} of {} as {}", id, stream, newId);
+        }
+        return replayed;
+    }
+
+    /**
+     * Drop dead letters for good. Returns how many were removed.
+     */
+    public long discard(String stream, List<String> ids) {
+        Long removed = redisTemplate.opsForStream().delete(dlqKey(stream), ids.toArray(new String[0]));
+        return removed != null ? removed : 0;
+    }
+
+    // Only streams this instance consumes have dead letters; anything else is a typo or a probe
+    private String dlqKey(String stream) {
+        for (StreamConsumerService.Registration registration : streamConsumerService.registrations()) {
+            if (registration.getStream().equals(stream)) {
+                return stream + DLQ_SUFFIX;
+            }
+        }
+        throw new IllegalArgumentException("Not a consumed stream: " + stream);
+    }
+
+    private Counter counter(String name, String stream) {
+        return counters.computeIfAbsent(name + "|" + stream, key -> Counter.builder(name)
+            .tag("stream", stream)
+            .register(meterRegistry));
+    }
+
+    private static Map<String, byte[]> fields(List<?> flat) {
+        Map<String, byte[]> fields = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < flat.size(); i += 2) {
+            Object value = flat.get(i + 1);
+            fields.put(string(flat.get(i)), value instanceof byte[] ? (byte[]) value : bytes(String.valueOf(value)));
+        }
+        return fields;
+    }
+
+    private static String string(Object value) {
+        return value instanceof byte[] ? new String((byte[]) value, StandardCharsets.UTF_8) : String.valueOf(value);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
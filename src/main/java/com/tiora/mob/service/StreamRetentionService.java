@@ -0,0 +1,204 @@
+package com.tiora.mob.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-stream retention, applied by every XADD that goes through {@link #add}.
+ * A stream keeps either its newest {@code maxlen:N} entries (XADD MAXLEN ~ N) or the entries
+ * younger than {@code maxage:D} (XADD MINID ~ now - D). Trimming is approximate, so Redis only
+ * drops whole macro nodes and the XADD stays O(1).
+ * <p>
+ * With {@link StreamArchiveService} enabled, a publish only trims up to the id the archiver has
+ * copied out, so an entry never leaves Redis before it is in the archive.
+ */
+@Service
+public class StreamRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamRetentionService.class);
+
+    @Value("${salon.redis.streams.appointment-stream}")
+    private String appointmentStreamKey;
+
+    @Value("${salon.redis.streams.barber-stream}")
+    private String barberStreamKey;
+
+    @Value("${salon.redis.streams.customer-stream:customer:appointment-events}")
+    private String customerStreamKey;
+
+    @Value("${app.streams.retention.appointment-stream:maxlen:100000}")
+    private String appointmentStreamRetention;
+
+    @Value("${app.streams.retention.barber-stream:maxage:7d}")
+    private String barberStreamRetention;
+
+    @Value("${app.streams.retention.customer-stream:maxage:7d}")
+    private String customerStreamRetention;
+
+    @Value("${app.streams.retention.dead-letter:maxage:30d}")
+    private String deadLetterRetention;
+
+    @Value("${app.streams.archive.enabled:false}")
+    private boolean archiveEnabled;
+
+    private final Map<String, Policy> policies = new LinkedHashMap<>();
+    // Last id copied out per stream, refreshed by the archiver
+    private final Map<String, String> archivedUpTo = new ConcurrentHashMap<>();
+
+    /**
+     * How much of a stream to keep: the newest {@code maxLength} entries, or those younger than {@code maxAge}.
+     */
+    public static final class Policy {
+        private final long maxLength;
+        private final Duration maxAge;
+
+        private Policy(long maxLength, Duration maxAge) {
+            this.maxLength = maxLength;
+            this.maxAge = maxAge;
+        }
+
+        /**
+         * Parse {@code maxlen:<entries>} or {@code maxage:<duration>} (e.g. {@code 7d}, {@code PT12H});
+         * {@code none} or blank means no trimming and returns null.
+         */
+        static Policy parse(String spec) {
+            if (spec == null || spec.isBlank() || "none".equalsIgnoreCase(spec.trim())) {
+                return null;
+            }
+            String[] parts = spec.trim().split(":", 2);
+            if (parts.length == 2 && "maxlen".equalsIgnoreCase(parts[0])) {
+                long maxLength = Long.parseLong(parts[1].trim());
+                if (maxLength < 1) {
+                    throw new IllegalArgumentException("Stream retention maxlen must be positive: " + spec);
+                }
+                return new Policy(maxLength, null);
+            }
+            if (parts.length == 2 && "maxage".equalsIgnoreCase(parts[0])) {
+                Duration maxAge = DurationStyle.detectAndParse(parts[1].trim());
+                if (maxAge.isNegative() || maxAge.isZero()) {
+                    throw new IllegalArgumentException("Stream retention maxage must be positive: " + spec);
+                }
+                return new Policy(0, maxAge);
+            }
+            throw new IllegalArgumentException("Unknown stream retention '" + spec + "', expected maxlen:<entries> or maxage:<duration>");
+        }
+
+        public long getMaxLength() { return maxLength; }
+        public Duration getMaxAge() { return maxAge; }
+        public boolean isByLength() { return maxLength > 0; }
+
+        /**
+         * Smallest id a by-age stream keeps right now.
+         */
+        public String minId() {
+            return (System.currentTimeMillis() - maxAge.toMillis()) + "-0";
+        }
+
+        @Override
+        public String toString() {
+            return isByLength() ? "maxlen:" + maxLength : "maxage:" + maxAge;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        register(appointmentStreamKey, appointmentStreamRetention);
+        register(barberStreamKey, barberStreamRetention);
+        register(customerStreamKey, customerStreamRetention);
+        register(appointmentStreamKey + StreamReclaimService.DLQ_SUFFIX, deadLetterRetention);
+        register(barberStreamKey + StreamReclaimService.DLQ_SUFFIX, deadLetterRetention);
+        register(customerStreamKey + StreamReclaimService.DLQ_SUFFIX, deadLetterRetention);
+        logger.info("Stream retention: {}{}", policies, archiveEnabled ? " (trimmed only once archived)" : "");
+    }
+
+    private void register(String stream, String spec) {
+        Policy policy = Policy.parse(spec);
+        if (policy != null) {
+            policies.put(stream, policy);
+        }
+    }
+
+    public Map<String, Policy> policies() {
+        return Collections.unmodifiableMap(policies);
+    }
+
+    /**
+     * XADD {@code fields} to {@code stream}, serialized as {@code template} would (byte[] values as they are),
+     * trimming per the stream's policy.
+     */
+    public RecordId add(RedisTemplate<String, ?> template, String stream, Map<String, ?> fields) {
+        return template.execute((RedisCallback<RecordId>) connection -> add(connection, template, stream, fields));
+    }
+
+    /**
+     * Same, on a connection the caller holds, e.g. inside {@code executePipelined} (returns null there).
+     */
+    public RecordId add(RedisConnection connection, RedisTemplate<String, ?> template, String stream, Map<String, ?> fields) {
+        return connection.streamCommands().xAdd(rawRecord(template, stream, fields), addOptions(stream));
+    }
+
+    XAddOptions addOptions(String stream) {
+        Policy policy = policies.get(stream);
+        if (policy == null) {
+            return XAddOptions.none();
+        }
+        if (archiveEnabled) {
+            // Only what the archiver has copied out may go; nothing is trimmed before its first run
+            String archived = archivedUpTo.get(stream);
+            return archived == null ? XAddOptions.none() : XAddOptions.none().minId(RecordId.of(archived)).approximateTrimming(true);
+        }
+        if (policy.isByLength()) {
+            return XAddOptions.maxlen(policy.getMaxLength()).approximateTrimming(true);
+        }
+        return XAddOptions.none().minId(RecordId.of(policy.minId())).approximateTrimming(true);
+    }
+
+    String archivedUpTo(String stream) {
+        return archivedUpTo.get(stream);
+    }
+
+    void setArchivedUpTo(String stream, String id) {
+        archivedUpTo.merge(stream, id, (current, next) -> compareIds(next, current) > 0 ? next : current);
+    }
+
+    /**
+     * Order two stream ids ({@code <ms>-<seq>}) numerically.
+     */
+    static int compareIds(String a, String b) {
+        int dashA = a.indexOf('-');
+        int dashB = b.indexOf('-');
+        int byTime = Long.compareUnsigned(Long.parseUnsignedLong(a.substring(0, dashA)), Long.parseUnsignedLong(b.substring(0, dashB)));
+        return byTime != 0 ? byTime
+            : Long.compareUnsigned(Long.parseUnsignedLong(a.substring(dashA + 1)), Long.parseUnsignedLong(b.substring(dashB + 1)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ByteRecord rawRecord(RedisTemplate<String, ?> template, String stream, Map<String, ?> fields) {
+        RedisSerializer<Object> keySerializer = (RedisSerializer<Object>) template.getKeySerializer();
+        RedisSerializer<Object> hashKeySerializer = (RedisSerializer<Object>) template.getHashKeySerializer();
+        RedisSerializer<Object> hashValueSerializer = (RedisSerializer<Object>) template.getHashValueSerializer();
+        Map<byte[], byte[]> raw = new LinkedHashMap<>(fields.size() * 2);
+        // byte[] values (encoded event envelopes) are written as they are, whatever the template
+        fields.forEach((field, value) -> raw.put(hashKeySerializer.serialize(field),
+            value instanceof byte[] bytes ? bytes : hashValueSerializer.serialize(value)));
+        return StreamRecords.rawBytes(raw).withStreamKey(keySerializer.serialize(stream));
+    }
+}
@@ -0,0 +1,135 @@
+package com.tiora.mob.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tiora.mob.dto.response.AvailableTimeSlotsResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Redis cache of computed /time-slots responses.
+ * One hash per barber and day ({@code availability:slots:{barberId}:{date}}) with one field per
+ * salon and total service duration, so invalidating a barber's day is a single DEL no matter how
+ * many duration variants were cached.
+ * Redis failures are logged and treated as a miss; availability never fails because of the cache.
+ */
+@Service
+public class TimeSlotCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimeSlotCacheService.class);
+    private static final String KEY_PREFIX = "availability:slots:";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+
+    @Value("${app.availability.slot-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.availability.slot-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    public TimeSlotCacheService(@Qualifier("customStringRedisTemplate") RedisTemplate<String, String> redisTemplate,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.hits = Counter.builder("availability.slot.cache.requests")
+            .tag("result", "hit")
+            .description("Time slot cache lookups")
+            .register(meterRegistry);
+        this.misses = Counter.builder("availability.slot.cache.requests")
+            .tag("result", "miss")
+            .description("Time slot cache lookups")
+            .register(meterRegistry);
+        this.invalidations = Counter.builder("availability.slot.cache.invalidations")
+            .description("Barber days evicted from the time slot cache")
+            .register(meterRegistry);
+    }
+
+    public Optional<AvailableTimeSlotsResponse> get(Long salonId, Long barberId, LocalDate date, int totalDuration) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        try {
+            Object cached = redisTemplate.opsForHash().get(key(barberId, date), field(salonId, totalDuration));
+            if (cached == null) {
+                misses.increment();
+                return Optional.empty();
+            }
+            hits.increment();
+            return Optional.of(objectMapper.readValue(cached.toString(), AvailableTimeSlotsResponse.class));
+        } catch (Exception e) {
+            logger.warn("Time slot cache read failed for barber {} on {}: {}", barberId, date, e.getMessage());
+            misses.increment();
+            return Optional.empty();
+        }
+    }
+
+    public void put(Long salonId, Long barberId, LocalDate date, int totalDuration, AvailableTimeSlotsResponse response) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            String key = key(barberId, date);
+            redisTemplate.opsForHash().put(key, field(salonId, totalDuration), objectMapper.writeValueAsString(response));
+            redisTemplate.expire(key, Duration.ofSeconds(ttlSeconds));
+        } catch (Exception e) {
+            logger.warn("Time slot cache write failed for barber {} on {}: {}", barberId, date, e.getMessage());
+        }
+    }
+
+    /**
+     * Drop every cached slot list for the barber's day.
+     */
+    public void evict(Long barberId, LocalDate date) {
+        if (!enabled || barberId == null || date == null) {
+            return;
+        }
+        try {
+            redisTemplate.delete(key(barberId, date));
+            invalidations.increment();
+            logger.debug("Evicted time slot cache for barber {} on {}", barberId, date);
+        } catch (Exception e) {
+            logger.warn("Time slot cache eviction failed for barber {} on {}: {}", barberId, date, e.getMessage());
+        }
+    }
+
+    /**
+     * Evict once the surrounding transaction commits, so a concurrent read cannot
+     * repopulate the cache from the pre-commit state. Evicts immediately when no transaction is active.
+     */
+    public void evictAfterCommit(Long barberId, LocalDate date) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(barberId, date);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(barberId, date);
+            }
+        });
+    }
+
+    private static String key(Long barberId, LocalDate date) {
+        return KEY_PREFIX + barberId + ":" + date;
+    }
+
+    private static String field(Long salonId, int totalDuration) {
+        return salonId + ":" + totalDuration;
+    }
+}
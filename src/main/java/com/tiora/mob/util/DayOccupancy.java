@@ -0,0 +1,155 @@
+package com.tiora.mob.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Minute-resolution occupancy bitmap for one barber on one day.
+ * Bit {@code m} is set when minute {@code m} of the day (0..1439) is taken.
+ * Checking whether a service of any duration fits at a given start is a
+ * mask test over at most a couple of 64-bit words instead of a scan over
+ * every appointment of the day.
+ */
+public final class DayOccupancy {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int WORDS = (MINUTES_PER_DAY + 63) >>> 6;
+
+    private final long[] words;
+
+    public DayOccupancy() {
+        this.words = new long[WORDS];
+    }
+
+    private DayOccupancy(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * Mark the half-open minute range [fromMinute, toMinute) as occupied.
+     * Values outside the day are clamped.
+     */
+    public DayOccupancy occupy(int fromMinute, int toMinute) {
+        int from = Math.max(0, fromMinute);
+        int to = Math.min(MINUTES_PER_DAY, toMinute);
+        if (from >= to) {
+            return this;
+        }
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        long firstMask = -1L << (from & 63);
+        long lastMask = -1L >>> (63 - ((to - 1) & 63));
+        if (firstWord == lastWord) {
+            words[firstWord] |= firstMask & lastMask;
+            return this;
+        }
+        words[firstWord] |= firstMask;
+        for (int w = firstWord + 1; w < lastWord; w++) {
+            words[w] = -1L;
+        }
+        words[lastWord] |= lastMask;
+        return this;
+    }
+
+    /**
+     * Mark the part of [start, end) that falls on {@code day} as occupied.
+     * A missing start or end is rejected: occupying nothing would offer a booked slot.
+     */
+    public DayOccupancy occupy(LocalDate day, LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null) {
+            throw new IllegalArgumentException("Appointment without a start or end time: " + start + " - " + end);
+        }
+        if (!end.isAfter(start)) {
+            return this;
+        }
+        if (start.toLocalDate().isAfter(day) || end.toLocalDate().isBefore(day)) {
+            return this;
+        }
+        int from = start.toLocalDate().isBefore(day) ? 0 : floorMinute(start.toLocalTime());
+        int to = end.toLocalDate().isAfter(day) ? MINUTES_PER_DAY : ceilMinute(end.toLocalTime());
+        return occupy(from, to);
+    }
+
+    /**
+     * True when no minute in the half-open range [fromMinute, toMinute) is occupied.
+     */
+    public boolean isFree(int fromMinute, int toMinute) {
+        int from = Math.max(0, fromMinute);
+        int to = Math.min(MINUTES_PER_DAY, toMinute);
+        if (from >= to) {
+            return true;
+        }
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        long firstMask = -1L << (from & 63);
+        long lastMask = -1L >>> (63 - ((to - 1) & 63));
+        if (firstWord == lastWord) {
+            return (words[firstWord] & firstMask & lastMask) == 0;
+        }
+        if ((words[firstWord] & firstMask) != 0) {
+            return false;
+        }
+        for (int w = firstWord + 1; w < lastWord; w++) {
+            if (words[w] != 0) {
+                return false;
+            }
+        }
+        return (words[lastWord] & lastMask) == 0;
+    }
+
+    public boolean isOccupied(int minute) {
+        return minute >= 0 && minute < MINUTES_PER_DAY && (words[minute >>> 6] & (1L << (minute & 63))) != 0;
+    }
+
+    /**
+     * Merge another day's occupancy into this one (bitwise OR).
+     */
+    public DayOccupancy merge(DayOccupancy other) {
+        for (int w = 0; w < WORDS; w++) {
+            words[w] |= other.words[w];
+        }
+        return this;
+    }
+
+    public DayOccupancy copy() {
+        return new DayOccupancy(words.clone());
+    }
+
+    /**
+     * Bytes in Redis bit order (minute {@code m} is bit {@code 7 - m % 8} of byte {@code m / 8}),
+     * so a stored mask can be updated in place with SETBIT.
+     */
+    public byte[] toRedisBytes() {
+        byte[] bytes = new byte[MINUTES_PER_DAY >>> 3];
+        for (int m = 0; m < MINUTES_PER_DAY; m++) {
+            if ((words[m >>> 6] & (1L << (m & 63))) != 0) {
+                bytes[m >>> 3] |= (byte) (0x80 >>> (m & 7));
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Inverse of {@link #toRedisBytes()}. Minutes beyond a shorter input are free.
+     */
+    public static DayOccupancy fromRedisBytes(byte[] bytes) {
+        long[] words = new long[WORDS];
+        int limit = Math.min(bytes.length << 3, MINUTES_PER_DAY);
+        for (int m = 0; m < limit; m++) {
+            if ((bytes[m >>> 3] & (0x80 >>> (m & 7))) != 0) {
+                words[m >>> 6] |= 1L << (m & 63);
+            }
+        }
+        return new DayOccupancy(words);
+    }
+
+    public static int floorMinute(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    public static int ceilMinute(LocalTime time) {
+        int minute = floorMinute(time);
+        return (time.getSecond() > 0 || time.getNano() > 0) ? minute + 1 : minute;
+    }
+}
@@ -0,0 +1,136 @@
+package com.tiora.mob.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs tasks on a fixed set of lanes, each a bounded queue drained by one thread.
+ * Tasks with equal keys always land on the same lane and so run in submission order, while
+ * different keys proceed in parallel. {@link #submit} blocks while the task's lane is full,
+ * which pushes back on whoever is producing the tasks.
+ * <p>
+ * Metrics, all tagged with the executor name: {@code stream.lane.depth} (per lane),
+ * {@code stream.lane.wait} (submit to start), {@code stream.lane.duration} (task run time)
+ * and {@code stream.lane.blocked} (submissions that found their lane full).
+ */
+public final class KeyPartitionedExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyPartitionedExecutor.class);
+    private static final Runnable STOP = () -> { };
+
+    private final String name;
+    private final List<BlockingQueue<Runnable>> lanes;
+    private final List<Thread> threads;
+    private final Timer waitTime;
+    private final Timer runTime;
+    private final Counter blocked;
+    private volatile boolean accepting = true;
+
+    public KeyPartitionedExecutor(String name, int laneCount, int laneCapacity, ThreadFactory threadFactory,
+                                  MeterRegistry meterRegistry) {
+        if (laneCount < 1 || laneCapacity < 1) {
+            throw new IllegalArgumentException("Lane count and capacity must be positive");
+        }
+        this.name = name;
+        this.lanes = new ArrayList<>(laneCount);
+        this.threads = new ArrayList<>(laneCount);
+        this.waitTime = Timer.builder("stream.lane.wait")
+            .tag("executor", name)
+            .description("Time a task waited in its lane")
+            .register(meterRegistry);
+        this.runTime = Timer.builder("stream.lane.duration")
+            .tag("executor", name)
+            .description("Task run time")
+            .register(meterRegistry);
+        this.blocked = Counter.builder("stream.lane.blocked")
+            .tag("executor", name)
+            .description("Submissions that waited for room in a full lane")
+            .register(meterRegistry);
+        for (int i = 0; i < laneCount; i++) {
+            BlockingQueue<Runnable> lane = new ArrayBlockingQueue<>(laneCapacity);
+            lanes.add(lane);
+            Gauge.builder("stream.lane.depth", lane, BlockingQueue::size)
+                .tag("executor", name)
+                .tag("lane", String.valueOf(i))
+                .description("Tasks queued in the lane")
+                .register(meterRegistry);
+            Thread thread = threadFactory.newThread(() -> drain(lane));
+            thread.setName(name + "-lane-" + i);
+            threads.add(thread);
+        }
+        threads.forEach(Thread::start);
+    }
+
+    /**
+     * Queue the task on the lane of {@code key} (null keys share lane 0), waiting while that lane is full.
+     */
+    public void submit(Object key, Runnable task) throws InterruptedException {
+        if (!accepting) {
+            throw new RejectedExecutionException(name + " is shut down");
+        }
+        BlockingQueue<Runnable> lane = lanes.get(key == null ? 0 : Math.floorMod(key.hashCode(), lanes.size()));
+        long queuedAt = System.nanoTime();
+        Runnable timed = () -> {
+            waitTime.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+            runTime.record(task);
+        };
+        if (!lane.offer(timed)) {
+            blocked.increment();
+            lane.put(timed);
+        }
+    }
+
+    /**
+     * Stop taking tasks and give the queued ones up to {@code timeoutMillis} to finish.
+     */
+    public void shutdown(long timeoutMillis) {
+        accepting = false;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        // A lane ends once it reaches its stop marker; a lane too full to take one is interrupted at the deadline
+        for (BlockingQueue<Runnable> lane : lanes) {
+            lane.offer(STOP);
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (thread.isAlive()) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    private void drain(BlockingQueue<Runnable> lane) {
+        while (true) {
+            Runnable task;
+            try {
+                task = lane.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (task == STOP) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.error("Task failed on {}: {}", Thread.currentThread().getName(), e.getMessage(), e);
+            }
+        }
+    }
+}
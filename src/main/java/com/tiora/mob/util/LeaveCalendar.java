@@ -0,0 +1,111 @@
+package com.tiora.mob.util;
+
+import com.tiora.mob.entity.EmployeeLeave;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable, sorted set of one employee's leave intervals.
+ * Overlapping and adjacent leaves are merged on construction, so "is on leave on D"
+ * is a binary search over the interval starts and "leave days in [from, to]" only walks
+ * the intervals that intersect the range.
+ */
+public final class LeaveCalendar {
+
+    private static final LeaveCalendar EMPTY = new LeaveCalendar(new long[0], new long[0]);
+
+    // Epoch days; starts is sorted and intervals are disjoint, ends are inclusive
+    private final long[] starts;
+    private final long[] ends;
+
+    private LeaveCalendar(long[] starts, long[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    public static LeaveCalendar empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Build a calendar from the given leaves. Status is not checked; pass only the leaves that count.
+     */
+    public static LeaveCalendar of(Collection<EmployeeLeave> leaves) {
+        long[][] intervals = new long[leaves.size()][];
+        int count = 0;
+        for (EmployeeLeave leave : leaves) {
+            if (leave.getStartDate() == null || leave.getEndDate() == null || leave.getEndDate().isBefore(leave.getStartDate())) {
+                continue;
+            }
+            intervals[count++] = new long[] {leave.getStartDate().toEpochDay(), leave.getEndDate().toEpochDay()};
+        }
+        if (count == 0) {
+            return EMPTY;
+        }
+        Arrays.sort(intervals, 0, count, (a, b) -> Long.compare(a[0], b[0]));
+        long[] starts = new long[count];
+        long[] ends = new long[count];
+        int merged = 0;
+        for (int i = 0; i < count; i++) {
+            long start = intervals[i][0];
+            long end = intervals[i][1];
+            if (merged > 0 && start <= ends[merged - 1] + 1) {
+                ends[merged - 1] = Math.max(ends[merged - 1], end);
+            } else {
+                starts[merged] = start;
+                ends[merged] = end;
+                merged++;
+            }
+        }
+        return new LeaveCalendar(Arrays.copyOf(starts, merged), Arrays.copyOf(ends, merged));
+    }
+
+    public boolean isOnLeave(LocalDate day) {
+        long d = day.toEpochDay();
+        int i = floorIndex(d);
+        return i >= 0 && ends[i] >= d;
+    }
+
+    /**
+     * Leave days within the inclusive range [from, to], in ascending order.
+     */
+    public List<LocalDate> leaveDaysBetween(LocalDate from, LocalDate to) {
+        List<LocalDate> days = new ArrayList<>();
+        long f = from.toEpochDay();
+        long t = to.toEpochDay();
+        int i = floorIndex(f);
+        if (i < 0 || ends[i] < f) {
+            i++;
+        }
+        for (; i < starts.length && starts[i] <= t; i++) {
+            long last = Math.min(ends[i], t);
+            for (long d = Math.max(starts[i], f); d <= last; d++) {
+                days.add(LocalDate.ofEpochDay(d));
+            }
+        }
+        return days;
+    }
+
+    public boolean isEmpty() {
+        return starts.length == 0;
+    }
+
+    // Index of the last interval starting on or before the given day, -1 if none
+    private int floorIndex(long day) {
+        int low = 0;
+        int high = starts.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= day) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+}
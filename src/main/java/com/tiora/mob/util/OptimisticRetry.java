@@ -0,0 +1,52 @@
+package com.tiora.mob.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Re-runs a whole transaction when it lost an optimistic-locking race (@Version mismatch).
+ * The action must open its own transaction, so each attempt re-reads the current row.
+ * After the last attempt the OptimisticLockingFailureException propagates (409 to the client).
+ */
+public final class OptimisticRetry {
+
+    private static final Logger logger = LoggerFactory.getLogger(OptimisticRetry.class);
+    public static final int DEFAULT_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF_MILLIS = 20;
+
+    private OptimisticRetry() {
+    }
+
+    public static void run(Runnable transaction) {
+        run(DEFAULT_ATTEMPTS, transaction);
+    }
+
+    public static void run(int attempts, Runnable transaction) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transaction.run();
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= attempts) {
+                    throw e;
+                }
+                logger.debug("Optimistic lock conflict, retrying (attempt {} of {}): {}", attempt + 1, attempts, e.getMessage());
+                backoff(attempt);
+            }
+        }
+    }
+
+    // Jittered, growing pause so the competing writers do not collide again
+    private static void backoff(int attempt) {
+        long millis = BASE_BACKOFF_MILLIS * attempt + ThreadLocalRandom.current().nextLong(BASE_BACKOFF_MILLIS);
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying a conflicting update", e);
+        }
+    }
+}
@@ -3,58 +3,123 @@ package com.tiora.mob.util;
 import com.tiora.mob.dto.response.AvailableTimeSlotsResponse;
 import com.tiora.mob.entity.Appointment;
 import com.tiora.mob.entity.WorkingHours;
+import com.tiora.mob.repository.AppointmentSlotView;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 
 public class TimeSlotUtil {
+    public static final int SLOT_STEP_MINUTES = 15; // 15-min granularity
+
     public static List<AvailableTimeSlotsResponse.TimeSlot> calculateAvailableSlots(
             WorkingHours workingHours,
             List<Appointment> appointments,
             int serviceDurationMinutes
     ) {
-        List<AvailableTimeSlotsResponse.TimeSlot> slots = new ArrayList<>();
-        if (workingHours == null) return slots;
-        LocalTime start = workingHours.getStartTime();
-        LocalTime end = workingHours.getEndTime();
-        List<TimeInterval> occupied = new ArrayList<>();
+        DayOccupancy occupancy = new DayOccupancy();
         for (Appointment appt : appointments) {
-            occupied.add(new TimeInterval(
-                appt.getAppointmentDate().toLocalTime(),
-                appt.getEstimatedEndTime().toLocalTime()
-            ));
+            occupancy.occupy(appt.getAppointmentDate().toLocalDate(), appt.getAppointmentDate(), endTimeOf(appt));
         }
-        LocalTime slotStart = start;
-        while (slotStart.plusMinutes(serviceDurationMinutes).compareTo(end) <= 0) {
-            LocalTime slotEnd = slotStart.plusMinutes(serviceDurationMinutes);
-            boolean overlaps = false;
-            for (TimeInterval interval : occupied) {
-                if (interval.overlaps(slotStart, slotEnd)) {
-                    overlaps = true;
-                    break;
-                }
-            }
-            if (!overlaps) {
-                slots.add(new AvailableTimeSlotsResponse.TimeSlot(slotStart, slotEnd, true, null));
+        return calculateAvailableSlots(workingHours, occupancy, serviceDurationMinutes);
+    }
+
+    /**
+     * Build the slot list for a day from a prebuilt occupancy bitmap.
+     * Each candidate slot is a mask test, so the cost no longer grows with the number of appointments.
+     */
+    public static List<AvailableTimeSlotsResponse.TimeSlot> calculateAvailableSlots(
+            WorkingHours workingHours,
+            DayOccupancy occupancy,
+            int serviceDurationMinutes
+    ) {
+        if (workingHours == null || serviceDurationMinutes <= 0) return new ArrayList<>();
+        int open = DayOccupancy.floorMinute(workingHours.getStartTime());
+        int close = DayOccupancy.floorMinute(workingHours.getEndTime());
+        List<AvailableTimeSlotsResponse.TimeSlot> slots =
+            new ArrayList<>(Math.max(0, (close - open) / SLOT_STEP_MINUTES + 1));
+        for (int slotStart = open; slotStart + serviceDurationMinutes <= close; slotStart += SLOT_STEP_MINUTES) {
+            int slotEnd = slotStart + serviceDurationMinutes;
+            if (occupancy.isFree(slotStart, slotEnd)) {
+                slots.add(new AvailableTimeSlotsResponse.TimeSlot(toTime(slotStart), toTime(slotEnd), true, null));
             } else {
-                slots.add(new AvailableTimeSlotsResponse.TimeSlot(slotStart, slotEnd, false, "Already booked"));
+                slots.add(new AvailableTimeSlotsResponse.TimeSlot(toTime(slotStart), toTime(slotEnd), false, "Already booked"));
             }
-            slotStart = slotStart.plusMinutes(15); // 15-min granularity
         }
         return slots;
     }
 
-    private static class TimeInterval {
-        private final LocalTime start;
-        private final LocalTime end;
+    /**
+     * True when at least one slot of the given duration fits inside working hours.
+     * Same walk as {@link #calculateAvailableSlots(WorkingHours, DayOccupancy, int)} without building the list.
+     */
+    public static boolean hasAvailableSlot(WorkingHours workingHours, DayOccupancy occupancy, int serviceDurationMinutes) {
+        if (workingHours == null || serviceDurationMinutes <= 0) return false;
+        int open = DayOccupancy.floorMinute(workingHours.getStartTime());
+        int close = DayOccupancy.floorMinute(workingHours.getEndTime());
+        for (int slotStart = open; slotStart + serviceDurationMinutes <= close; slotStart += SLOT_STEP_MINUTES) {
+            if (occupancy.isFree(slotStart, slotStart + serviceDurationMinutes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mark available slots that overlap a held range as unavailable, in place.
+     */
+    public static void markHeld(List<AvailableTimeSlotsResponse.TimeSlot> slots, DayOccupancy held) {
+        if (slots == null) return;
+        for (AvailableTimeSlotsResponse.TimeSlot slot : slots) {
+            if (!Boolean.TRUE.equals(slot.getIsAvailable())) continue;
+            int from = DayOccupancy.floorMinute(slot.getStartTime());
+            int to = DayOccupancy.floorMinute(slot.getEndTime());
+            if (to <= from) to = DayOccupancy.MINUTES_PER_DAY;
+            if (!held.isFree(from, to)) {
+                slot.setIsAvailable(false);
+                slot.setUnavailableReason("Temporarily held");
+            }
+        }
+    }
 
-        public TimeInterval(LocalTime start, LocalTime end) {
-            this.start = start;
-            this.end = end;
+    /**
+     * Occupancy of one day built from the given appointments, skipping cancelled ones.
+     */
+    public static DayOccupancy occupancyOf(LocalDate day, List<Appointment> appointments) {
+        DayOccupancy occupancy = new DayOccupancy();
+        for (Appointment appt : appointments) {
+            if (appt.getStatus() == Appointment.AppointmentStatus.CANCELLED) continue;
+            occupancy.occupy(day, appt.getAppointmentDate(), endTimeOf(appt));
         }
+        return occupancy;
+    }
 
-        public boolean overlaps(LocalTime slotStart, LocalTime slotEnd) {
-            return !(slotEnd.compareTo(start) <= 0 || slotStart.compareTo(end) >= 0);
+    /**
+     * Occupancy of one day built from appointment projections, skipping cancelled ones.
+     */
+    public static DayOccupancy occupancyOfSlots(LocalDate day, List<AppointmentSlotView> slots) {
+        DayOccupancy occupancy = new DayOccupancy();
+        for (AppointmentSlotView slot : slots) {
+            if (slot.getStatus() == Appointment.AppointmentStatus.CANCELLED) continue;
+            occupancy.occupy(day, slot.getAppointmentDate(), slot.getEndTime());
         }
+        return occupancy;
+    }
+
+    /**
+     * Estimated end, or start plus the service duration for rows saved without one
+     * (same fallback as {@link AppointmentSlotView#getEndTime()}).
+     */
+    static LocalDateTime endTimeOf(Appointment appt) {
+        if (appt.getEstimatedEndTime() != null || appt.getAppointmentDate() == null
+                || appt.getService() == null || appt.getService().getDurationMinutes() == null) {
+            return appt.getEstimatedEndTime();
+        }
+        return appt.getAppointmentDate().plusMinutes(appt.getService().getDurationMinutes());
+    }
+
+    private static LocalTime toTime(int minuteOfDay) {
+        return LocalTime.of((minuteOfDay / 60) % 24, minuteOfDay % 60);
     }
 }
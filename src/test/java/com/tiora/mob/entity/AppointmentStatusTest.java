@@ -0,0 +1,36 @@
+package com.tiora.mob.entity;
+
+import com.tiora.mob.entity.Appointment.AppointmentStatus;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AppointmentStatusTest {
+
+    @Test
+    void finalStatusesCannotBeLeft() {
+        for (AppointmentStatus from : new AppointmentStatus[] {
+                AppointmentStatus.COMPLETED, AppointmentStatus.CANCELLED, AppointmentStatus.NO_SHOW}) {
+            for (AppointmentStatus to : AppointmentStatus.values()) {
+                assertThat(from.canMoveTo(to)).as(from + " -> " + to).isFalse();
+            }
+        }
+    }
+
+    @Test
+    void startedAppointmentCanOnlyBeCompletedOrCancelled() {
+        assertThat(AppointmentStatus.IN_PROGRESS.canMoveTo(AppointmentStatus.COMPLETED)).isTrue();
+        assertThat(AppointmentStatus.IN_PROGRESS.canMoveTo(AppointmentStatus.CANCELLED)).isTrue();
+        assertThat(AppointmentStatus.IN_PROGRESS.canMoveTo(AppointmentStatus.IN_PROGRESS)).isFalse();
+        assertThat(AppointmentStatus.IN_PROGRESS.canMoveTo(AppointmentStatus.SCHEDULED)).isFalse();
+        assertThat(AppointmentStatus.IN_PROGRESS.canMoveTo(AppointmentStatus.NO_SHOW)).isFalse();
+    }
+
+    @Test
+    void bookedAppointmentCanMoveToAnyOtherStatus() {
+        for (AppointmentStatus to : AppointmentStatus.values()) {
+            assertThat(AppointmentStatus.SCHEDULED.canMoveTo(to)).as("SCHEDULED -> " + to)
+                .isEqualTo(to != AppointmentStatus.SCHEDULED);
+        }
+    }
+}
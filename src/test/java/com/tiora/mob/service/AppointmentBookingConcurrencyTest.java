@@ -0,0 +1,263 @@
+package com.tiora.mob.service;
+
+import com.tiora.mob.dto.request.AppointmentRequest;
+import com.tiora.mob.entity.Branch;
+import com.tiora.mob.entity.Customer;
+import com.tiora.mob.entity.Employee;
+import com.tiora.mob.entity.Salon;
+import com.tiora.mob.entity.Service;
+import com.tiora.mob.exception.SlotTakenException;
+import com.tiora.mob.repository.BranchRepository;
+import com.tiora.mob.repository.CustomerRepository;
+import com.tiora.mob.repository.EmployeeRepository;
+import com.tiora.mob.repository.SalonRepository;
+import com.tiora.mob.repository.ServiceRepository;
+import com.tiora.mob.support.StandIns;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrent bookings of one barber against embedded Postgres (with the scripts under {@code sql/},
+ * including the no-overlap exclusion constraint) and embedded Redis.
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AppointmentBookingConcurrencyTest {
+
+    private static final int BOOKINGS = 200;
+    private static final int SERVICE_MINUTES = 30;
+
+    @DynamicPropertySource
+    static void standIns(DynamicPropertyRegistry registry) {
+        StandIns.shared().applicationProperties().forEach((name, value) -> registry.add(name, () -> value));
+        registry.add("app.availability.materialize.enabled", () -> false);
+    }
+
+    @Autowired
+    private AppointmentService appointmentService;
+    @Autowired
+    private SalonRepository salonRepository;
+    @Autowired
+    private BranchRepository branchRepository;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private ServiceRepository serviceRepository;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private DataSource dataSource;
+
+    private Salon salon;
+    private Branch branch;
+    private Long serviceId;
+    private final List<Long> customerIds = new ArrayList<>();
+
+    @BeforeAll
+    void seed() throws Exception {
+        StandIns.applySqlScripts(dataSource, Path.of("sql"));
+        LocalDateTime now = LocalDateTime.now();
+
+        salon = new Salon();
+        salon.setName("Concurrency Salon");
+        salon.setAddress("1 Test Street");
+        salon.setPhoneNumber("0110000001");
+        salon.setStatus(Salon.SalonStatus.ACTIVE);
+        salon.setCreatedAt(now);
+        salon = salonRepository.save(salon);
+
+        branch = new Branch();
+        branch.setSalon(salon);
+        branch.setBranchName("Main");
+        branch.setStatus(Branch.BranchStatus.ACTIVE);
+        branch.setSalonType(Branch.SalonType.GENTS);
+        branch.setCreatedAt(now);
+        branch = branchRepository.save(branch);
+
+        Service service = new Service();
+        service.setName("Cut");
+        service.setPrice(new BigDecimal("1500.00"));
+        service.setDurationMinutes(SERVICE_MINUTES);
+        service.setCategory(Service.ServiceCategory.HAIRCUT);
+        service.setStatus(Service.ServiceStatus.ACTIVE);
+        service.setGenderAvailability(Service.GenderAvailability.BOTH);
+        service.setSalon(salon);
+        service.setCreatedAt(now);
+        serviceId = serviceRepository.save(service).getId();
+
+        for (int i = 0; i < BOOKINGS; i++) {
+            Customer customer = new Customer();
+            customer.setPhoneNumber(String.format("07800%05d", i));
+            customer.setFirstName("Customer");
+            customer.setLastName(String.valueOf(i));
+            customer.setEmail("customer" + i + "@concurrency.test");
+            customer.setStatus(Customer.CustomerStatus.ACTIVE);
+            customer.setCreatedAt(now);
+            customerIds.add(customerRepository.save(customer).getId());
+        }
+    }
+
+    @Test
+    void sameSlotIsBookedExactlyOnce() throws Exception {
+        Long barberId = newBarber("same-slot");
+        LocalDateTime start = LocalDate.now().plusDays(7).atTime(LocalTime.of(10, 0));
+
+        List<Object> outcomes = bookConcurrently(i -> request(barberId, i, start));
+
+        assertThat(outcomes).filteredOn(outcome -> outcome instanceof Long).hasSize(1);
+        assertThat(outcomes).filteredOn(outcome -> outcome instanceof SlotTakenException).hasSize(BOOKINGS - 1);
+        assertThat(bookedCount(barberId)).isEqualTo(1);
+        assertThat(overlappingPairs(barberId)).isZero();
+    }
+
+    @Test
+    void sameSlotWithoutEndTimeIsBookedExactlyOnce() throws Exception {
+        Long barberId = newBarber("same-slot-no-end");
+        LocalDateTime start = LocalDate.now().plusDays(7).atTime(LocalTime.of(14, 0));
+
+        List<Object> outcomes = bookConcurrently(i -> request(barberId, i, start, false));
+
+        assertThat(outcomes).filteredOn(outcome -> outcome instanceof Long).hasSize(1);
+        assertThat(outcomes).filteredOn(outcome -> outcome instanceof SlotTakenException).hasSize(BOOKINGS - 1);
+        assertThat(rowsWithoutServiceEnd(barberId)).isZero();
+        assertThat(overlappingPairs(barberId)).isZero();
+    }
+
+    @Test
+    void staggeredOverlappingSlotsNeverOverlapOnceBooked() throws Exception {
+        Long barberId = newBarber("staggered");
+        LocalDateTime first = LocalDate.now().plusDays(8).atTime(LocalTime.of(8, 0));
+
+        // Every request overlaps its neighbours: 30-minute slots starting three minutes apart
+        List<Object> outcomes = bookConcurrently(i -> request(barberId, i, first.plusMinutes(3L * i)));
+
+        assertNoOverlapsBooked(barberId, outcomes);
+    }
+
+    @Test
+    void staggeredSlotsWithAndWithoutEndTimeNeverOverlapOnceBooked() throws Exception {
+        Long barberId = newBarber("staggered-mixed");
+        LocalDateTime first = LocalDate.now().plusDays(9).atTime(LocalTime.of(8, 0));
+
+        // Every other request leaves the end time to the service duration
+        List<Object> outcomes = bookConcurrently(i -> request(barberId, i, first.plusMinutes(3L * i), i % 2 == 0));
+
+        assertNoOverlapsBooked(barberId, outcomes);
+        assertThat(rowsWithoutServiceEnd(barberId)).isZero();
+    }
+
+    private void assertNoOverlapsBooked(Long barberId, List<Object> outcomes) {
+        long booked = outcomes.stream().filter(outcome -> outcome instanceof Long).count();
+        assertThat(booked).isPositive();
+        assertThat(outcomes).filteredOn(outcome -> outcome instanceof SlotTakenException).hasSize(BOOKINGS - (int) booked);
+        assertThat(bookedCount(barberId)).isEqualTo(booked);
+        assertThat(overlappingPairs(barberId)).isZero();
+    }
+
+    /**
+     * Runs every request on its own thread, released together, and returns each outcome:
+     * the new appointment id or the exception thrown.
+     */
+    private List<Object> bookConcurrently(IntFunction<AppointmentRequest> requests) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(BOOKINGS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < BOOKINGS; i++) {
+                AppointmentRequest request = requests.apply(i);
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        return appointmentService.createAppointment(null, request).getId();
+                    } catch (RuntimeException e) {
+                        return e;
+                    }
+                }));
+            }
+            start.countDown();
+            List<Object> outcomes = new ArrayList<>();
+            for (Future<Object> future : futures) {
+                outcomes.add(future.get());
+            }
+            return outcomes;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private AppointmentRequest request(Long barberId, int customer, LocalDateTime start) {
+        return request(barberId, customer, start, true);
+    }
+
+    private AppointmentRequest request(Long barberId, int customer, LocalDateTime start, boolean withEndTime) {
+        return AppointmentRequest.builder()
+                .serviceIds(List.of(serviceId))
+                .employeeId(barberId)
+                .salonId(salon.getId())
+                .branchId(branch.getBranchId())
+                .customerId(customerIds.get(customer))
+                .appointmentDate(start)
+                .estimatedEndTime(withEndTime ? start.plusMinutes(SERVICE_MINUTES) : null)
+                .build();
+    }
+
+    private Long newBarber(String name) {
+        Employee barber = Employee.builder()
+                .firstName("Barber")
+                .lastName(name)
+                .email(name + "@concurrency.test")
+                .phoneNumber("071" + Math.abs(name.hashCode() % 10_000_000))
+                .role(Employee.Role.BARBER)
+                .status(Employee.EmployeeStatus.ACTIVE)
+                .salon(salon)
+                .branch(branch)
+                .createdAt(LocalDateTime.now())
+                .build();
+        return employeeRepository.save(barber).getEmployeeId();
+    }
+
+    private long bookedCount(Long barberId) {
+        return new JdbcTemplate(dataSource).queryForObject(
+                "SELECT count(*) FROM appointments WHERE employee_id = ?", Long.class, barberId);
+    }
+
+    // Rows whose stored end is not start + service duration (or missing)
+    private long rowsWithoutServiceEnd(Long barberId) {
+        return new JdbcTemplate(dataSource).queryForObject("""
+                SELECT count(*) FROM appointments
+                WHERE employee_id = ?
+                  AND (estimated_end_time IS NULL OR estimated_end_time <> appointment_date + ? * INTERVAL '1 minute')
+                """, Long.class, barberId, SERVICE_MINUTES);
+    }
+
+    private long overlappingPairs(Long barberId) {
+        return new JdbcTemplate(dataSource).queryForObject("""
+                SELECT count(*) FROM appointments a
+                JOIN appointments b ON a.employee_id = b.employee_id AND a.id < b.id
+                WHERE a.employee_id = ? AND a.status <> 'CANCELLED' AND b.status <> 'CANCELLED'
+                  AND a.appointment_date < b.estimated_end_time AND b.appointment_date < a.estimated_end_time
+                """, Long.class, barberId);
+    }
+}
@@ -0,0 +1,202 @@
+package com.tiora.mob.service;
+
+import com.tiora.mob.dto.StreamEventEnvelope;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamEventCodecTest {
+
+    private final StreamEventCodec codec = new StreamEventCodec(StreamEventCodec.Format.LEGACY);
+
+    @Test
+    void legacyFieldsLoseTheirJsonQuotes() {
+        StreamEventEnvelope event = codec.fromLegacyFields(Map.of(
+            "messageType", "\"appointment_updated\"",
+            "salonId", "\"12\"",
+            "priority", "\"HIGH\"",
+            "note", "\"say \\\"hi\\\"\""));
+
+        assertThat(event.getType()).isEqualTo("appointment_updated");
+        assertThat(event.getSalonId()).isEqualTo(12L);
+        assertThat(event.getPriority()).isEqualTo("HIGH");
+        assertThat(event.attribute("note")).isEqualTo("say \"hi\"");
+    }
+
+    @Test
+    void legacyFieldsAcceptSnakeAndCamelCaseKeys() {
+        StreamEventEnvelope event = codec.fromLegacyFields(Map.of(
+            "message_type", "barber_status_changed",
+            "salon_id", "3",
+            "appointmentId", "41",
+            "source_system", "web_backend",
+            "requires_notification", "true",
+            "customer_phone", "0771234567"));
+
+        assertThat(event.getType()).isEqualTo("barber_status_changed");
+        assertThat(event.getSalonId()).isEqualTo(3L);
+        assertThat(event.getAppointmentId()).isEqualTo(41L);
+        assertThat(event.getSourceSystem()).isEqualTo("web_backend");
+        assertThat(event.getRequiresNotification()).isTrue();
+        assertThat(event.getAttributes()).containsExactly(Map.entry("customerPhone", "0771234567"));
+    }
+
+    @Test
+    void legacyDataAndMetadataAreParsedAsNestedJson() {
+        StreamEventEnvelope event = codec.fromLegacyFields(Map.of(
+            "messageType", "appointment_updated",
+            "data", "{\"status\":\"SCHEDULED\",\"services\":[1,2],\"customer\":{\"id\":9}}",
+            // Written by the Jackson-serializing template: the JSON document itself quoted once more
+            "metadata", "\"{\\\"retry\\\":2}\""));
+
+        assertThat(event.getData())
+            .containsEntry("status", "SCHEDULED")
+            .containsEntry("services", List.of(1, 2))
+            .containsEntry("customer", Map.of("id", 9));
+        assertThat(event.getMetadata()).containsExactly(Map.entry("retry", 2));
+        assertThat(event.getAttributes()).isNull();
+    }
+
+    @Test
+    void legacyDataThatIsNotJsonStaysAnAttribute() {
+        StreamEventEnvelope event = codec.fromLegacyFields(Map.of("data", "not json"));
+
+        assertThat(event.getData()).isNull();
+        assertThat(event.attribute("data")).isEqualTo("not json");
+    }
+
+    @Test
+    void decodesLegacyCreatedBarberNotification() {
+        LocalDateTime sent = LocalDateTime.of(2025, 9, 8, 10, 15, 30);
+        Map<String, String> fields = new HashMap<>();
+        fields.put("messageType", "\"CREATED\"");
+        fields.put("eventType", "\"CREATED\"");
+        fields.put("sourceSystem", "\"mobile_backend\"");
+        fields.put("timestamp", "\"" + sent + "\"");
+        fields.put("salonId", "\"1\"");
+        fields.put("barberId", "\"7\"");
+        fields.put("appointmentId", "\"55\"");
+        fields.put("requiresNotification", "\"true\"");
+        fields.put("customerName", "\"Nimal Perera\"");
+
+        StreamEventEnvelope event = codec.decode(bytes(fields));
+
+        assertThat(event.getType()).isEqualTo("CREATED");
+        assertThat(event.getEventType()).isEqualTo("CREATED");
+        assertThat(event.getSourceSystem()).isEqualTo("mobile_backend");
+        assertThat(event.getTimestamp()).isEqualTo(sent.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        assertThat(event.getBarberId()).isEqualTo(7L);
+        assertThat(event.getAppointmentId()).isEqualTo(55L);
+        assertThat(event.getRequiresNotification()).isTrue();
+        assertThat(event.attribute("customerName")).isEqualTo("Nimal Perera");
+        assertThat(event.getVersion()).isEqualTo(StreamEventEnvelope.CURRENT_VERSION);
+    }
+
+    @Test
+    void recognisesEveryEnvelopeEncodingFromItsFirstBytes() {
+        StreamEventEnvelope event = sample();
+
+        for (StreamEventCodec.Format format : List.of(StreamEventCodec.Format.JSON,
+                StreamEventCodec.Format.CBOR, StreamEventCodec.Format.SMILE)) {
+            Map<String, byte[]> fields = envelope(codec.encode(event, format));
+
+            assertThat(StreamEventCodec.isEnvelope(fields)).isTrue();
+            assertThat(codec.decode(fields)).as(format.name()).isEqualTo(event);
+        }
+    }
+
+    @Test
+    void jsonEnvelopeMayStartWithWhitespace() {
+        String json = "  \n" + codec.toJson(sample());
+
+        StreamEventEnvelope event = codec.decode(Map.of(StreamEventCodec.ENVELOPE_FIELD, json.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(event).isEqualTo(sample());
+    }
+
+    @Test
+    void unknownEnvelopeEncodingIsRejected() {
+        Map<String, byte[]> fields = Map.of(StreamEventCodec.ENVELOPE_FIELD, new byte[] {0x01, 0x02, 0x03});
+
+        assertThatThrownBy(() -> codec.decode(fields))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Unrecognised");
+    }
+
+    @Test
+    void newerEnvelopeVersionIsRejected() {
+        StreamEventEnvelope newer = sample().toBuilder().version(StreamEventEnvelope.CURRENT_VERSION + 1).build();
+
+        for (StreamEventCodec.Format format : List.of(StreamEventCodec.Format.JSON,
+                StreamEventCodec.Format.CBOR, StreamEventCodec.Format.SMILE)) {
+            Map<String, byte[]> fields = envelope(codec.encode(newer, format));
+
+            assertThatThrownBy(() -> codec.decode(fields))
+                .as(format.name())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("newer than supported");
+        }
+    }
+
+    @Test
+    void legacyFieldsRoundTrip() {
+        StreamEventEnvelope event = sample();
+
+        Map<String, String> fields = codec.toLegacyFields(event);
+
+        assertThat(codec.fromLegacyFields(fields)).isEqualTo(event);
+        assertThat(codec.decode(bytes(fields))).isEqualTo(event);
+    }
+
+    @Test
+    void legacyIsTheConfiguredFormatsPlainFieldMap() {
+        Map<String, ?> fields = codec.encode(sample());
+
+        assertThat(fields.get("messageType")).isEqualTo("appointment_updated");
+        assertThat(fields).doesNotContainKey(StreamEventCodec.ENVELOPE_FIELD);
+    }
+
+    private static StreamEventEnvelope sample() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("status", "SCHEDULED");
+        data.put("total", 4500);
+        data.put("services", List.of("Cut", "Shave"));
+        return StreamEventEnvelope.builder()
+            .type("appointment_updated")
+            .eventType("UPDATED")
+            .source("web")
+            .sourceSystem("web_backend")
+            // Whole seconds: the legacy timestamp is a LocalDateTime string
+            .timestamp(LocalDateTime.of(2025, 9, 8, 9, 30).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
+            .salonId(1L)
+            .branchId(2L)
+            .appointmentId(3L)
+            .customerId(4L)
+            .barberId(5L)
+            .priority("HIGH")
+            .requiresNotification(true)
+            .attributes(Map.of("customerName", "Kamal", "serviceNames", "Cut, Shave"))
+            .metadata(Map.of("retry", 0))
+            .data(data)
+            .build();
+    }
+
+    private static Map<String, byte[]> envelope(Map<String, ?> encoded) {
+        return Map.of(StreamEventCodec.ENVELOPE_FIELD, (byte[]) encoded.get(StreamEventCodec.ENVELOPE_FIELD));
+    }
+
+    private static Map<String, byte[]> bytes(Map<String, String> fields) {
+        Map<String, byte[]> raw = new HashMap<>();
+        fields.forEach((name, value) -> raw.put(name, value.getBytes(StandardCharsets.UTF_8)));
+        return raw;
+    }
+}
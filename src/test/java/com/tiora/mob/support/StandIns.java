@@ -0,0 +1,128 @@
+package com.tiora.mob.support;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import redis.embedded.RedisServer;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Embedded Postgres and Redis the application is started against in database tests and load tests.
+ * Both run as local child processes on free ports and are removed on close.
+ */
+public final class StandIns implements AutoCloseable {
+
+    private static StandIns shared;
+
+    private final EmbeddedPostgres postgres;
+    private final RedisServer redis;
+    private final int redisPort;
+
+    private StandIns(EmbeddedPostgres postgres, RedisServer redis, int redisPort) {
+        this.postgres = postgres;
+        this.redis = redis;
+        this.redisPort = redisPort;
+    }
+
+    public static StandIns start() throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        int redisPort = freePort();
+        RedisServer redis = new RedisServer(redisPort);
+        try {
+            redis.start();
+        } catch (IOException e) {
+            postgres.close();
+            throw e;
+        }
+        return new StandIns(postgres, redis, redisPort);
+    }
+
+    /**
+     * One pair for the whole test JVM, started on first use and stopped when the JVM exits.
+     */
+    public static synchronized StandIns shared() {
+        if (shared == null) {
+            try {
+                shared = start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not start embedded Postgres and Redis", e);
+            }
+            StandIns standIns = shared;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    standIns.close();
+                } catch (IOException ignored) {
+                    // the JVM is going away either way
+                }
+            }));
+        }
+        return shared;
+    }
+
+    public String jdbcUrl() {
+        String url = postgres.getJdbcUrl("postgres", "postgres");
+        // jsonb columns (e.g. employees.specializations) are bound as strings by their converters
+        return url + (url.contains("?") ? "&" : "?") + "stringtype=unspecified";
+    }
+
+    public int redisPort() {
+        return redisPort;
+    }
+
+    /**
+     * Datasource and Redis settings pointing the application at these stand-ins.
+     */
+    public Map<String, Object> applicationProperties() {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("spring.datasource.url", jdbcUrl());
+        properties.put("spring.datasource.username", "postgres");
+        properties.put("spring.datasource.password", "postgres");
+        properties.put("spring.data.redis.host", "localhost");
+        properties.put("spring.data.redis.port", redisPort);
+        properties.put("spring.data.redis.password", "");
+        return properties;
+    }
+
+    /**
+     * Run every script under {@code sql/} (sequence, outbox, constraints, triggers) against the
+     * schema Hibernate has just created. Each file goes to the driver as a single statement string,
+     * which also keeps dollar-quoted function bodies intact.
+     */
+    public static void applySqlScripts(DataSource dataSource, Path directory) throws IOException, SQLException {
+        List<Path> scripts;
+        try (Stream<Path> files = Files.list(directory)) {
+            scripts = files.filter(path -> path.toString().endsWith(".sql")).sorted().toList();
+        }
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (Path script : scripts) {
+                statement.execute(Files.readString(script));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            redis.stop();
+        } finally {
+            postgres.close();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.tiora.mob.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DayOccupancyTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 9, 8);
+
+    @Test
+    void occupiesHalfOpenRange() {
+        DayOccupancy occupancy = new DayOccupancy().occupy(600, 630);
+
+        assertThat(occupancy.isOccupied(599)).isFalse();
+        assertThat(occupancy.isOccupied(600)).isTrue();
+        assertThat(occupancy.isOccupied(629)).isTrue();
+        assertThat(occupancy.isOccupied(630)).isFalse();
+        assertThat(occupancy.isFree(570, 600)).isTrue();
+        assertThat(occupancy.isFree(630, 660)).isTrue();
+        assertThat(occupancy.isFree(629, 631)).isFalse();
+    }
+
+    @Test
+    void rangesAcrossWordBoundaries() {
+        // Minute 64 is the first bit of the second word, 127/128 straddle the second and third
+        DayOccupancy occupancy = new DayOccupancy().occupy(60, 70).occupy(127, 129);
+
+        for (int minute = 60; minute < 70; minute++) {
+            assertThat(occupancy.isOccupied(minute)).as("minute %d", minute).isTrue();
+        }
+        assertThat(occupancy.isOccupied(59)).isFalse();
+        assertThat(occupancy.isOccupied(70)).isFalse();
+        assertThat(occupancy.isFree(64, 65)).isFalse();
+        assertThat(occupancy.isFree(70, 127)).isTrue();
+        assertThat(occupancy.isFree(126, 128)).isFalse();
+        assertThat(occupancy.isFree(128, 130)).isFalse();
+        assertThat(occupancy.isFree(129, 200)).isTrue();
+        // A free test spanning several whole words
+        assertThat(occupancy.isFree(0, 60)).isTrue();
+        assertThat(occupancy.isFree(0, 300)).isFalse();
+    }
+
+    @Test
+    void wholeWordsAndDayEdges() {
+        DayOccupancy occupancy = new DayOccupancy().occupy(64, 192);
+
+        assertThat(occupancy.isFree(0, 64)).isTrue();
+        assertThat(occupancy.isFree(192, DayOccupancy.MINUTES_PER_DAY)).isTrue();
+        assertThat(occupancy.isFree(63, 65)).isFalse();
+        assertThat(occupancy.isFree(191, 193)).isFalse();
+
+        DayOccupancy lastMinute = new DayOccupancy().occupy(DayOccupancy.MINUTES_PER_DAY - 1, DayOccupancy.MINUTES_PER_DAY + 30);
+        assertThat(lastMinute.isOccupied(DayOccupancy.MINUTES_PER_DAY - 1)).isTrue();
+        assertThat(lastMinute.isFree(0, DayOccupancy.MINUTES_PER_DAY - 1)).isTrue();
+    }
+
+    @Test
+    void endAtMidnightOccupiesToEndOfDay() {
+        DayOccupancy occupancy = new DayOccupancy()
+            .occupy(DAY, DAY.atTime(23, 30), DAY.plusDays(1).atStartOfDay());
+
+        assertThat(occupancy.isFree(23 * 60, 23 * 60 + 30)).isTrue();
+        assertThat(occupancy.isOccupied(23 * 60 + 30)).isTrue();
+        assertThat(occupancy.isOccupied(DayOccupancy.MINUTES_PER_DAY - 1)).isTrue();
+        // The next day is untouched
+        assertThat(new DayOccupancy().occupy(DAY.plusDays(1), DAY.atTime(23, 30), DAY.plusDays(1).atStartOfDay())
+            .isFree(0, DayOccupancy.MINUTES_PER_DAY)).isTrue();
+    }
+
+    @Test
+    void appointmentCrossingMidnightOccupiesBothDays() {
+        LocalDateTime start = DAY.atTime(23, 0);
+        LocalDateTime end = DAY.plusDays(1).atTime(1, 0);
+
+        assertThat(new DayOccupancy().occupy(DAY, start, end).isFree(23 * 60, DayOccupancy.MINUTES_PER_DAY)).isFalse();
+        DayOccupancy nextDay = new DayOccupancy().occupy(DAY.plusDays(1), start, end);
+        assertThat(nextDay.isOccupied(0)).isTrue();
+        assertThat(nextDay.isOccupied(59)).isTrue();
+        assertThat(nextDay.isOccupied(60)).isFalse();
+    }
+
+    @Test
+    void secondsRoundOutward() {
+        assertThat(DayOccupancy.floorMinute(LocalTime.of(10, 15, 59))).isEqualTo(615);
+        assertThat(DayOccupancy.ceilMinute(LocalTime.of(10, 15, 1))).isEqualTo(616);
+        assertThat(DayOccupancy.ceilMinute(LocalTime.of(10, 15, 0, 1))).isEqualTo(616);
+        assertThat(DayOccupancy.ceilMinute(LocalTime.of(10, 15))).isEqualTo(615);
+
+        // 10:00:30 - 10:29:30 blocks every minute it touches
+        DayOccupancy occupancy = new DayOccupancy().occupy(DAY, DAY.atTime(10, 0, 30), DAY.atTime(10, 29, 30));
+        assertThat(occupancy.isOccupied(600)).isTrue();
+        assertThat(occupancy.isOccupied(629)).isTrue();
+        assertThat(occupancy.isOccupied(630)).isFalse();
+    }
+
+    @Test
+    void missingEndTimeIsRejected() {
+        assertThatThrownBy(() -> new DayOccupancy().occupy(DAY, DAY.atTime(10, 0), null))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void emptyOrForeignRangesOccupyNothing() {
+        DayOccupancy occupancy = new DayOccupancy()
+            .occupy(DAY, DAY.atTime(10, 0), DAY.atTime(10, 0))
+            .occupy(DAY, DAY.plusDays(1).atTime(9, 0), DAY.plusDays(1).atTime(10, 0))
+            .occupy(700, 650);
+
+        assertThat(occupancy.isFree(0, DayOccupancy.MINUTES_PER_DAY)).isTrue();
+    }
+
+    @Test
+    void redisBytesRoundTrip() {
+        DayOccupancy occupancy = new DayOccupancy().occupy(0, 1).occupy(63, 65).occupy(1000, 1057).occupy(1439, 1440);
+
+        byte[] bytes = occupancy.toRedisBytes();
+        // Minute 0 is the most significant bit of the first byte, as SETBIT/GETBIT number them
+        assertThat(bytes[0] & 0xFF).isEqualTo(0x80);
+        assertThat(bytes[bytes.length - 1] & 0x01).isEqualTo(1);
+
+        DayOccupancy restored = DayOccupancy.fromRedisBytes(bytes);
+        for (int minute = 0; minute < DayOccupancy.MINUTES_PER_DAY; minute++) {
+            assertThat(restored.isOccupied(minute)).as("minute %d", minute).isEqualTo(occupancy.isOccupied(minute));
+        }
+    }
+
+    @Test
+    void mergeAndCopyAreIndependent() {
+        DayOccupancy booked = new DayOccupancy().occupy(600, 630);
+        DayOccupancy copy = booked.copy().merge(new DayOccupancy().occupy(700, 730));
+
+        assertThat(copy.isFree(700, 730)).isFalse();
+        assertThat(copy.isFree(600, 630)).isFalse();
+        assertThat(booked.isFree(700, 730)).isTrue();
+    }
+}
@@ -0,0 +1,125 @@
+package com.tiora.mob.util;
+
+import com.tiora.mob.dto.response.AvailableTimeSlotsResponse;
+import com.tiora.mob.entity.Appointment;
+import com.tiora.mob.entity.Service;
+import com.tiora.mob.entity.WorkingHours;
+import com.tiora.mob.repository.AppointmentSlotView;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeSlotUtilTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 9, 8);
+    private static final WorkingHours HOURS = new WorkingHours(LocalTime.of(9, 0), LocalTime.of(18, 0));
+
+    @Test
+    void matchesTheLinearScanItReplaced() {
+        Random random = new Random(20250908);
+        for (int round = 0; round < 500; round++) {
+            List<Appointment> appointments = new ArrayList<>();
+            int count = random.nextInt(12);
+            for (int i = 0; i < count; i++) {
+                // Whole minutes, any alignment, partly outside working hours
+                LocalDateTime start = DAY.atTime(8, 0).plusMinutes(random.nextInt(11 * 60));
+                appointments.add(appointment(start, start.plusMinutes(5 + random.nextInt(120))));
+            }
+            int duration = 15 + random.nextInt(8) * 15;
+
+            List<AvailableTimeSlotsResponse.TimeSlot> expected = linearScan(HOURS, appointments, duration);
+            List<AvailableTimeSlotsResponse.TimeSlot> actual = TimeSlotUtil.calculateAvailableSlots(HOURS, appointments, duration);
+
+            assertThat(actual).hasSameSizeAs(expected);
+            for (int i = 0; i < expected.size(); i++) {
+                assertThat(actual.get(i).getStartTime()).isEqualTo(expected.get(i).getStartTime());
+                assertThat(actual.get(i).getEndTime()).isEqualTo(expected.get(i).getEndTime());
+                assertThat(actual.get(i).getIsAvailable())
+                    .as("round %d, slot %s, appointments %s", round, expected.get(i).getStartTime(), appointments.size())
+                    .isEqualTo(expected.get(i).getIsAvailable());
+            }
+        }
+    }
+
+    @Test
+    void appointmentWithoutEndTimeBlocksItsServiceDuration() {
+        Appointment appointment = appointment(DAY.atTime(10, 0), null);
+        Service service = new Service();
+        service.setDurationMinutes(45);
+        appointment.setService(service);
+
+        DayOccupancy occupancy = TimeSlotUtil.occupancyOf(DAY, List.of(appointment));
+
+        assertThat(occupancy.isFree(600, 645)).isFalse();
+        assertThat(occupancy.isFree(645, 700)).isTrue();
+    }
+
+    @Test
+    void slotViewWithoutEndTimeBlocksItsServiceDuration() {
+        AppointmentSlotView slot = slotView(DAY.atTime(10, 0), null, 30);
+
+        assertThat(slot.getEndTime()).isEqualTo(DAY.atTime(10, 30));
+        DayOccupancy occupancy = TimeSlotUtil.occupancyOfSlots(DAY, List.of(slot));
+        assertThat(occupancy.isFree(600, 630)).isFalse();
+        assertThat(occupancy.isFree(630, 660)).isTrue();
+
+        assertThat(slotView(DAY.atTime(10, 0), DAY.atTime(11, 0), 30).getEndTime()).isEqualTo(DAY.atTime(11, 0));
+    }
+
+    @Test
+    void cancelledAppointmentsAreSkipped() {
+        Appointment cancelled = appointment(DAY.atTime(10, 0), DAY.atTime(11, 0));
+        cancelled.setStatus(Appointment.AppointmentStatus.CANCELLED);
+
+        assertThat(TimeSlotUtil.occupancyOf(DAY, List.of(cancelled)).isFree(0, DayOccupancy.MINUTES_PER_DAY)).isTrue();
+    }
+
+    private static Appointment appointment(LocalDateTime start, LocalDateTime end) {
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentDate(start);
+        appointment.setEstimatedEndTime(end);
+        appointment.setStatus(Appointment.AppointmentStatus.SCHEDULED);
+        return appointment;
+    }
+
+    private static AppointmentSlotView slotView(LocalDateTime start, LocalDateTime end, Integer durationMinutes) {
+        return new AppointmentSlotView() {
+            public Long getEmployeeId() { return 1L; }
+            public LocalDateTime getAppointmentDate() { return start; }
+            public LocalDateTime getEstimatedEndTime() { return end; }
+            public Appointment.AppointmentStatus getStatus() { return Appointment.AppointmentStatus.SCHEDULED; }
+            public Integer getServiceDurationMinutes() { return durationMinutes; }
+        };
+    }
+
+    /**
+     * The per-slot scan over every appointment that the occupancy bitmap replaced.
+     */
+    private static List<AvailableTimeSlotsResponse.TimeSlot> linearScan(
+            WorkingHours workingHours, List<Appointment> appointments, int serviceDurationMinutes) {
+        List<AvailableTimeSlotsResponse.TimeSlot> slots = new ArrayList<>();
+        LocalTime slotStart = workingHours.getStartTime();
+        while (slotStart.plusMinutes(serviceDurationMinutes).compareTo(workingHours.getEndTime()) <= 0) {
+            LocalTime slotEnd = slotStart.plusMinutes(serviceDurationMinutes);
+            boolean overlaps = false;
+            for (Appointment appt : appointments) {
+                LocalTime from = appt.getAppointmentDate().toLocalTime();
+                LocalTime to = appt.getEstimatedEndTime().toLocalTime();
+                if (!(slotEnd.compareTo(from) <= 0 || slotStart.compareTo(to) >= 0)) {
+                    overlaps = true;
+                    break;
+                }
+            }
+            slots.add(new AvailableTimeSlotsResponse.TimeSlot(slotStart, slotEnd, !overlaps, overlaps ? "Already booked" : null));
+            slotStart = slotStart.plusMinutes(TimeSlotUtil.SLOT_STEP_MINUTES);
+        }
+        return slots;
+    }
+}